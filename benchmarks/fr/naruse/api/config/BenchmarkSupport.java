@@ -0,0 +1,105 @@
+package fr.naruse.api.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+// Shared by the benchmarks, nothing here is part of the plugin
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    interface Task {
+
+        void run() throws Exception;
+
+    }
+
+    static final class Result {
+
+        final String name;
+        final double millis;
+        final double allocatedMegabytes;
+
+        Result(String name, double millis, double allocatedMegabytes) {
+            this.name = name;
+            this.millis = millis;
+            this.allocatedMegabytes = allocatedMegabytes;
+        }
+
+        @Override
+        public String toString() {
+            String allocated = this.allocatedMegabytes < 0 ? "n/a" : String.format("%.1f MB", this.allocatedMegabytes);
+            return String.format("%-32s %10.2f ms/op %14s/op", this.name, this.millis, allocated);
+        }
+    }
+
+    static Result measure(String name, int warmups, int iterations, Task task) throws Exception {
+        for (int i = 0; i < warmups; i++) {
+            task.run();
+        }
+        System.gc();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            task.run();
+        }
+        long nanos = System.nanoTime() - start;
+        long allocatedAfter = allocatedBytes();
+        double allocated = allocatedBefore < 0 ? -1 : (allocatedAfter - allocatedBefore) / (double) iterations / 1_000_000;
+        return new Result(name, nanos / (double) iterations / 1_000_000, allocated);
+    }
+
+    // Bytes allocated by the current thread, -1 when the VM doesn't report it
+    static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(bean instanceof com.sun.management.ThreadMXBean){
+            com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+            if(threadBean.isThreadAllocatedMemorySupported()){
+                return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    // Sections with a handful of keys each, the shape of the data configurations we load
+    static String generateJson(int sections) {
+        StringBuilder builder = new StringBuilder(sections * 200);
+        builder.append("{\n");
+        for (int i = 0; i < sections; i++) {
+            builder.append("  \"entry-").append(i).append("\": {\n")
+                    .append("    \"name\": \"Entry number ").append(i).append("\",\n")
+                    .append("    \"enabled\": ").append(i % 2 == 0).append(",\n")
+                    .append("    \"weight\": ").append(i * 0.5).append(",\n")
+                    .append("    \"count\": ").append(i).append(",\n")
+                    .append("    \"location\": { \"world\": \"world\", \"x\": ").append(i).append(".5, \"y\": 64, \"z\": -").append(i).append(".25 },\n")
+                    .append("    \"tags\": [\"a\", \"b\", \"c\"]\n")
+                    .append("  }").append(i + 1 < sections ? ",\n" : "\n");
+        }
+        return builder.append("}\n").toString();
+    }
+
+    static File writeTemp(File directory, String name, String content) throws IOException {
+        File file = new File(directory, name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    static File createTempDirectory(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix).toFile();
+    }
+
+    static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if(children != null){
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
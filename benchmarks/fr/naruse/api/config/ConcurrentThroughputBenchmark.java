@@ -0,0 +1,111 @@
+package fr.naruse.api.config;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Read and write throughput with reader threads running against one writer thread.
+// Concurrent mode is compared with a plain configuration where every access is synchronized, the only safe option before it.
+//   java -cp out/bench fr.naruse.api.config.ConcurrentThroughputBenchmark [seconds per run]
+public class ConcurrentThroughputBenchmark {
+
+    private static final int SECTIONS = 2_000;
+    private static volatile boolean stopped;
+    // Keeps the reads from being optimized away
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        long millis = (args.length > 0 ? Long.parseLong(args[0]) : 2) * 1000;
+        int maxReaders = Math.max(Runtime.getRuntime().availableProcessors() - 1, 1);
+
+        String[] keys = new String[SECTIONS];
+        for (int i = 0; i < SECTIONS; i++) {
+            keys[i] = "entry-"+i;
+        }
+        String json = BenchmarkSupport.generateJson(SECTIONS);
+
+        System.out.println(String.format("%-14s %8s %16s %16s", "mode", "readers", "reads/s", "writes/s"));
+        for (int readers = 1; readers <= maxReaders; readers *= 2) {
+            Configuration concurrent = new Configuration(json);
+            concurrent.setConcurrent(true);
+            print("concurrent", readers, run(concurrent, keys, readers, millis, null));
+
+            Configuration locked = new Configuration(json);
+            print("synchronized", readers, run(locked, keys, readers, millis, new Object()));
+        }
+    }
+
+    private static long[] run(Configuration configuration, String[] keys, int readers, long millis, Object lock) throws InterruptedException {
+        LongAdder reads = new LongAdder();
+        LongAdder writes = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        stopped = false;
+
+        Thread[] threads = new Thread[readers + 1];
+        for (int i = 0; i < readers; i++) {
+            threads[i] = new Thread(() -> {
+                await(start);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long sum = 0;
+                while (!stopped) {
+                    String key = keys[random.nextInt(keys.length)];
+                    if(lock == null){
+                        sum += configuration.getSection(key).getInt("count");
+                    }else{
+                        synchronized (lock){
+                            sum += configuration.getSection(key).getInt("count");
+                        }
+                    }
+                    reads.increment();
+                }
+                sink += sum;
+            });
+        }
+        threads[readers] = new Thread(() -> {
+            await(start);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int value = 0;
+            while (!stopped) {
+                String key = keys[random.nextInt(keys.length)];
+                if(lock == null){
+                    configuration.getSection(key).set("count", value++);
+                }else{
+                    synchronized (lock){
+                        configuration.getSection(key).set("count", value++);
+                    }
+                }
+                writes.increment();
+            }
+        });
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        Thread.sleep(millis);
+        stopped = true;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Map<String, Object> all = configuration.getMainSection().getAll();
+        if(all.size() != keys.length){
+            throw new IllegalStateException("Lost sections: "+all.size());
+        }
+        double seconds = millis / 1000.0;
+        return new long[]{(long) (reads.sum() / seconds), (long) (writes.sum() / seconds)};
+    }
+
+    private static void await(CountDownLatch latch) {
+        try{
+            latch.await();
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void print(String mode, int readers, long[] result) {
+        System.out.println(String.format("%-14s %8d %,16d %,16d", mode, readers, result[0], result[1]));
+    }
+}
@@ -0,0 +1,190 @@
+package fr.naruse.api.config;
+
+import com.google.gson.Gson;
+import sun.misc.Unsafe;
+
+import java.io.StringReader;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Retained size of a parsed tree, CompactMap sections against the LinkedTreeMaps Gson builds.
+// Sizes are computed like JOL does, from the field offsets and array layout the running VM reports, the heap is not sampled.
+// Exits with 1 when a CompactMap tree isn't the smaller one. Needs a JDK that still exposes sun.misc.Unsafe, so no --release 8.
+//   java -cp out/bench fr.naruse.api.config.FootprintBenchmark [sections]
+public class FootprintBenchmark {
+
+    private static final Unsafe UNSAFE = unsafe();
+    private static final int ALIGNMENT = 8;
+    private static final long OBJECT_HEADER = headerSize();
+    private static final Map<Class<?>, Long> SHALLOW_SIZES = new HashMap<>();
+    private static final Map<Class<?>, List<Field>> REFERENCE_FIELDS = new HashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        int sections = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        String json = BenchmarkSupport.generateJson(sections);
+
+        Map<String, Object> gson = new Gson().fromJson(json, Configuration.MAP_TYPE);
+        // Without interning as well, so the map layout alone can be compared with Gson's
+        StringInterner.disable();
+        Map<String, Object> uninterned = new ConfigurationTreeReader(NumberMode.DOUBLE).readRoot(new StringReader(json));
+        StringInterner.enable();
+        Map<String, Object> compact = new ConfigurationTreeReader(NumberMode.DOUBLE).readRoot(new StringReader(json));
+
+        Footprint before = measure(gson);
+        Footprint layout = measure(uninterned);
+        Footprint after = measure(compact);
+        System.out.println(sections+" sections, "+json.length() / 1024+" KiB of JSON");
+        System.out.println(String.format("%-24s %s", "LinkedTreeMap", before));
+        System.out.println(String.format("%-24s %s", "CompactMap, not interned", layout));
+        System.out.println(String.format("%-24s %s", "CompactMap", after));
+        System.out.println(String.format("Retained: %.1f%% less", 100.0 * (before.bytes - after.bytes) / before.bytes));
+        if(layout.bytes >= before.bytes || after.bytes >= before.bytes){
+            System.exit(1);
+        }
+    }
+
+    static final class Footprint {
+
+        final long bytes;
+        final long objects;
+
+        Footprint(long bytes, long objects) {
+            this.bytes = bytes;
+            this.objects = objects;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,14d bytes %,10d objects %8.1f bytes/object", this.bytes, this.objects, this.bytes / (double) this.objects);
+        }
+    }
+
+    // Walks everything reachable through instance fields, classes and statics are shared with the rest of the VM and left out
+    static Footprint measure(Object root) {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Object> pending = new ArrayDeque<>();
+        pending.push(root);
+        long bytes = 0;
+        while (!pending.isEmpty()) {
+            Object o = pending.pop();
+            if(o instanceof Class || !visited.add(o)){
+                continue;
+            }
+            Class<?> type = o.getClass();
+            if(type.isArray()){
+                int length = Array.getLength(o);
+                bytes += align(UNSAFE.arrayBaseOffset(type) + (long) UNSAFE.arrayIndexScale(type) * length);
+                if(!type.getComponentType().isPrimitive()){
+                    for (int i = 0; i < length; i++) {
+                        Object element = Array.get(o, i);
+                        if(element != null){
+                            pending.push(element);
+                        }
+                    }
+                }
+                continue;
+            }
+            bytes += shallowSize(type);
+            for (Field field : referenceFields(type)) {
+                Object value = UNSAFE.getObject(o, UNSAFE.objectFieldOffset(field));
+                if(value != null){
+                    pending.push(value);
+                }
+            }
+        }
+        return new Footprint(bytes, visited.size());
+    }
+
+    private static long shallowSize(Class<?> type) {
+        Long size = SHALLOW_SIZES.get(type);
+        if(size == null){
+            long end = OBJECT_HEADER;
+            for (Field field : instanceFields(type)) {
+                end = Math.max(end, UNSAFE.objectFieldOffset(field) + fieldSize(field.getType()));
+            }
+            SHALLOW_SIZES.put(type, size = align(end));
+        }
+        return size;
+    }
+
+    private static List<Field> referenceFields(Class<?> type) {
+        List<Field> fields = REFERENCE_FIELDS.get(type);
+        if(fields == null){
+            fields = new ArrayList<>();
+            for (Field field : instanceFields(type)) {
+                if(!field.getType().isPrimitive()){
+                    fields.add(field);
+                }
+            }
+            REFERENCE_FIELDS.put(type, fields);
+        }
+        return fields;
+    }
+
+    private static List<Field> instanceFields(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if(!Modifier.isStatic(field.getModifiers())){
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static long fieldSize(Class<?> type) {
+        if(type == long.class || type == double.class){
+            return 8;
+        }
+        if(type == int.class || type == float.class){
+            return 4;
+        }
+        if(type == short.class || type == char.class){
+            return 2;
+        }
+        if(type == byte.class || type == boolean.class){
+            return 1;
+        }
+        return UNSAFE.arrayIndexScale(Object[].class);
+    }
+
+    private static long align(long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static class HeaderProbe {
+
+        private byte field;
+
+    }
+
+    // The first field is laid out right after the header
+    private static long headerSize() {
+        try{
+            return UNSAFE.objectFieldOffset(HeaderProbe.class.getDeclaredField("field"));
+        }catch (NoSuchFieldException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Unsafe unsafe() {
+        try{
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return (Unsafe) field.get(null);
+        }catch (ReflectiveOperationException e){
+            throw new IllegalStateException("sun.misc.Unsafe is not available", e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package fr.naruse.api.config;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Load time of a multi-megabyte configuration, the old joined-String path against the streaming Reader.
+// reload() hands files this large to the byte reader instead, it gets its own row.
+// Run from the repository root:
+//   javac -d out/bench $(find src benchmarks -name '*.java' ! -path '*bukkit*')
+//   java -cp out/bench fr.naruse.api.config.LoadBenchmark [sections]
+public class LoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int sections = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        File directory = BenchmarkSupport.createTempDirectory("load-benchmark");
+        try{
+            File file = BenchmarkSupport.writeTemp(directory, "data.json", BenchmarkSupport.generateJson(sections));
+            System.out.println("File size: "+file.length() / 1024+" KiB ("+sections+" sections)");
+
+            BenchmarkSupport.Result joined = BenchmarkSupport.measure("joined String + GSON.fromJson", 3, 10, () -> loadJoined(file));
+            BenchmarkSupport.Result streamed = BenchmarkSupport.measure("streaming Reader", 3, 10, () -> loadStreamed(file));
+            BenchmarkSupport.Result bytes = BenchmarkSupport.measure("reload() (byte reader)", 3, 10, () -> new Configuration(file, false));
+            System.out.println(joined);
+            System.out.println(streamed);
+            System.out.println(bytes);
+            System.out.println(String.format("Speedup: %.2fx, allocation: %.2fx less", joined.millis / streamed.millis, joined.allocatedMegabytes / streamed.allocatedMegabytes));
+        }finally {
+            BenchmarkSupport.deleteRecursively(directory);
+        }
+    }
+
+    // What reload() does for files under the byte reader threshold
+    private static Map<String, Object> loadStreamed(File file) throws Exception {
+        try(Reader reader = Configuration.newReader(new FileInputStream(file))){
+            return new ConfigurationTreeReader(NumberMode.DOUBLE).readRoot(reader);
+        }
+    }
+
+    // What reload() did before it read from the Reader
+    private static Map<String, Object> loadJoined(File file) throws Exception {
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))){
+            return Configuration.GSON.fromJson(reader.lines().collect(Collectors.joining()), Configuration.MAP_TYPE);
+        }
+    }
+}
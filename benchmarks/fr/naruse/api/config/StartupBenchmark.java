@@ -0,0 +1,52 @@
+package fr.naruse.api.config;
+
+import java.io.File;
+
+// Startup time of a plugin loading many configurations: without the cache, with a cold cache and with a warm one.
+// A cold run parses every file and writes its cache, a warm run decodes the cache files left by the previous one.
+//   java -cp out/bench fr.naruse.api.config.StartupBenchmark [configurations] [sections per configuration]
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int configurations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int sections = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        File directory = BenchmarkSupport.createTempDirectory("startup-benchmark");
+        try{
+            String json = BenchmarkSupport.generateJson(sections);
+            for (int i = 0; i < configurations; i++) {
+                BenchmarkSupport.writeTemp(directory, "config-"+i+".json", json);
+            }
+            System.out.println(configurations+" configurations of "+json.length() / 1024+" KiB");
+            // Loaded on this thread, the allocations are only counted for the measuring thread
+            ConfigurationLoader loader = new ConfigurationLoader().setLoadDefaultResource(false).setExecutor(Runnable::run);
+
+            ConfigurationCache.disable();
+            BenchmarkSupport.Result uncached = BenchmarkSupport.measure("no cache", 2, 5, () -> loader.load(directory));
+
+            ConfigurationCache.enable();
+            BenchmarkSupport.Result cold = BenchmarkSupport.measure("cold cache", 2, 5, () -> {
+                deleteCacheFiles(directory);
+                loader.load(directory);
+            });
+            BenchmarkSupport.Result warm = BenchmarkSupport.measure("warm cache", 2, 5, () -> loader.load(directory));
+            ConfigurationCache.disable();
+
+            System.out.println(uncached);
+            System.out.println(cold);
+            System.out.println(warm);
+            System.out.println(String.format("Warm against no cache: %.2fx", uncached.millis / warm.millis));
+        }finally {
+            BenchmarkSupport.deleteRecursively(directory);
+        }
+    }
+
+    // The cache files are the hidden ones, the loader skips them
+    private static void deleteCacheFiles(File directory) {
+        File[] files = directory.listFiles(file -> file.getName().startsWith("."));
+        if(files != null){
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+}
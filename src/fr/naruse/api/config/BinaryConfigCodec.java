@@ -0,0 +1,82 @@
+package fr.naruse.api.config;
+
+import java.io.*;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+public class BinaryConfigCodec implements ConfigCodec {
+
+    private static final int MAGIC = 0x4E434642;
+    private static final int VERSION = 1;
+    private static final int FLAG_DEFLATE = 1;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final boolean compress;
+    private final int compressionLevel;
+
+    public BinaryConfigCodec(boolean compress) {
+        this(compress, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public BinaryConfigCodec(boolean compress, int compressionLevel) {
+        this.compress = compress;
+        this.compressionLevel = compressionLevel;
+    }
+
+    @Override
+    public Map<String, Object> read(InputStream inputStream, NumberMode numberMode) throws IOException {
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        int magic;
+        try{
+            magic = dataInputStream.readInt();
+        }catch (EOFException e){
+            return null;
+        }
+        if(magic != MAGIC || dataInputStream.readUnsignedByte() != VERSION){
+            throw new IOException("Not a binary configuration");
+        }
+        int flags = dataInputStream.readUnsignedByte();
+
+        Object tree;
+        if((flags & FLAG_DEFLATE) != 0){
+            Inflater inflater = new Inflater();
+            try{
+                tree = BinaryTreeFormat.read(new BufferedInputStream(new InflaterInputStream(inputStream, inflater, BUFFER_SIZE), BUFFER_SIZE), numberMode);
+            }finally {
+                inflater.end();
+            }
+        }else{
+            tree = BinaryTreeFormat.read(inputStream, numberMode);
+        }
+        if(tree != null && !(tree instanceof Map)){
+            throw new IOException("Expected a section at the root of a binary configuration");
+        }
+        return (Map<String, Object>) tree;
+    }
+
+    @Override
+    public void write(Map<String, Object> tree, OutputStream outputStream) throws IOException {
+        DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+        dataOutputStream.writeInt(MAGIC);
+        dataOutputStream.writeByte(VERSION);
+        dataOutputStream.writeByte(this.compress ? FLAG_DEFLATE : 0);
+
+        if(!this.compress){
+            BinaryTreeFormat.write(tree, outputStream);
+            return;
+        }
+        Deflater deflater = new Deflater(this.compressionLevel);
+        try{
+            DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(outputStream, deflater, BUFFER_SIZE);
+            BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(deflaterOutputStream, BUFFER_SIZE);
+            BinaryTreeFormat.write(tree, bufferedOutputStream);
+            bufferedOutputStream.flush();
+            deflaterOutputStream.finish();
+        }finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package fr.naruse.api.config;
+
+import com.google.gson.internal.LazilyParsedNumber;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Type-tagged encoding of a configuration tree. Lengths and integers are varints and every
+// string is written once, later occurrences point back into the string table.
+public final class BinaryTreeFormat {
+
+    private static final int NULL = 0;
+    private static final int FALSE = 1;
+    private static final int TRUE = 2;
+    private static final int LONG = 3;
+    private static final int DOUBLE = 4;
+    private static final int NUMBER = 5;
+    private static final int STRING = 6;
+    private static final int MAP = 7;
+    private static final int LIST = 8;
+
+    private BinaryTreeFormat() {
+    }
+
+    public static void write(Object tree, OutputStream outputStream) throws IOException {
+        new Writer(outputStream).write(tree);
+    }
+
+    public static Object read(InputStream inputStream, NumberMode numberMode) throws IOException {
+        return new Reader(inputStream, numberMode).read();
+    }
+
+    private static class Writer {
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        private Writer(OutputStream outputStream) {
+            this.out = new DataOutputStream(outputStream);
+        }
+
+        private void write(Object o) throws IOException {
+            if(o == null){
+                this.out.write(NULL);
+            }else if(o instanceof Boolean){
+                this.out.write((Boolean) o ? TRUE : FALSE);
+            }else if(o instanceof Long || o instanceof Integer || o instanceof Short || o instanceof Byte){
+                this.out.write(LONG);
+                long value = ((Number) o).longValue();
+                this.writeVarLong((value << 1) ^ (value >> 63));
+            }else if(o instanceof Double || o instanceof Float){
+                this.out.write(DOUBLE);
+                this.out.writeDouble(((Number) o).doubleValue());
+            }else if(o instanceof Number){
+                this.out.write(NUMBER);
+                this.writeString(o.toString());
+            }else if(o instanceof String || o instanceof Character){
+                this.out.write(STRING);
+                this.writeString(o.toString());
+            }else if(o instanceof Map){
+                Map<?, ?> map = (Map<?, ?>) o;
+                this.out.write(MAP);
+                this.writeVarLong(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    this.writeString(String.valueOf(entry.getKey()));
+                    this.write(entry.getValue());
+                }
+            }else if(o instanceof List){
+                List<?> list = (List<?>) o;
+                this.out.write(LIST);
+                this.writeVarLong(list.size());
+                for (Object value : list) {
+                    this.write(value);
+                }
+            }else{
+                this.write(ConfigurationBinder.toTree(o, NumberMode.LAZY));
+            }
+        }
+
+        private void writeString(String s) throws IOException {
+            Integer index = this.strings.get(s);
+            if(index != null){
+                this.writeVarLong(index + 1);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            this.writeVarLong(0);
+            this.writeVarLong(bytes.length);
+            this.out.write(bytes);
+            this.strings.put(s, this.strings.size());
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0){
+                this.out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            this.out.write((int) value);
+        }
+    }
+
+    private static class Reader {
+
+        private final DataInputStream in;
+        private final NumberMode numberMode;
+        private final List<String> strings = new ArrayList<>();
+
+        private Reader(InputStream inputStream, NumberMode numberMode) {
+            this.in = new DataInputStream(inputStream);
+            this.numberMode = numberMode;
+        }
+
+        private Object read() throws IOException {
+            int tag = this.in.read();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case FALSE:
+                    return false;
+                case TRUE:
+                    return true;
+                case LONG:
+                    long value = this.readVarLong();
+                    return this.numberMode.normalize((value >>> 1) ^ -(value & 1));
+                case DOUBLE:
+                    return this.numberMode.normalize(this.in.readDouble());
+                case NUMBER:
+                    return this.numberMode.normalize(new LazilyParsedNumber(this.readString(false)));
+                case STRING:
+                    return this.readString(false);
+                case MAP:
+                    int size = (int) this.readVarLong();
+                    Map<String, Object> map = new CompactMap();
+                    for (int i = 0; i < size; i++) {
+                        map.put(this.readString(true), this.read());
+                    }
+                    return map;
+                case LIST:
+                    int length = (int) this.readVarLong();
+                    List<Object> list = new ArrayList<>(length);
+                    for (int i = 0; i < length; i++) {
+                        list.add(this.read());
+                    }
+                    return list;
+                case -1:
+                    throw new EOFException();
+                default:
+                    throw new IOException("Unknown value tag "+tag);
+            }
+        }
+
+        private String readString(boolean name) throws IOException {
+            int index = (int) this.readVarLong();
+            if(index != 0){
+                return this.strings.get(index - 1);
+            }
+            byte[] bytes = new byte[(int) this.readVarLong()];
+            this.in.readFully(bytes);
+            String s = new String(bytes, StandardCharsets.UTF_8);
+            s = name ? StringInterner.name(s) : StringInterner.value(s);
+            this.strings.add(s);
+            return s;
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = this.in.read();
+                if(b == -1){
+                    throw new EOFException();
+                }
+                value |= (long) (b & 0x7F) << shift;
+                if((b & 0x80) == 0){
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+    }
+}
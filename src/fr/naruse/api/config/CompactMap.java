@@ -0,0 +1,255 @@
+package fr.naruse.api.config;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+// Keeps small sections in one flat array of keys and values, in insertion order.
+// Past THRESHOLD entries a scan costs more than hashing, so the map moves to a LinkedHashMap.
+public class CompactMap extends AbstractMap<String, Object> {
+
+    private static final int THRESHOLD = 8;
+    private static final int INITIAL_CAPACITY = 4;
+
+    private Object[] entries;
+    private int size;
+    private Map<String, Object> map;
+    private boolean frozen;
+    private int hash;
+
+    public CompactMap() {
+    }
+
+    public CompactMap(Map<String, Object> map) {
+        if(map.size() > THRESHOLD){
+            this.map = new LinkedHashMap<>(map);
+            return;
+        }
+        this.entries = new Object[Math.max(map.size(), 1) * 2];
+        for (Entry<String, Object> entry : map.entrySet()) {
+            this.entries[this.size * 2] = entry.getKey();
+            this.entries[this.size * 2 + 1] = entry.getValue();
+            this.size++;
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        if(this.map != null){
+            return this.map.get(key);
+        }
+        int index = this.indexOf(key);
+        return index == -1 ? null : this.entries[index * 2 + 1];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.map != null ? this.map.containsKey(key) : this.indexOf(key) != -1;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        this.checkNotFrozen();
+        if(this.map != null){
+            return this.map.put(key, value);
+        }
+
+        int index = this.indexOf(key);
+        if(index != -1){
+            Object previous = this.entries[index * 2 + 1];
+            this.entries[index * 2 + 1] = value;
+            return previous;
+        }
+
+        if(this.size == THRESHOLD){
+            Map<String, Object> map = new LinkedHashMap<>(THRESHOLD * 4);
+            for (int i = 0; i < this.size; i++) {
+                map.put((String) this.entries[i * 2], this.entries[i * 2 + 1]);
+            }
+            map.put(key, value);
+            this.map = map;
+            this.entries = null;
+            this.size = 0;
+            return null;
+        }
+
+        if(this.entries == null){
+            this.entries = new Object[INITIAL_CAPACITY * 2];
+        }else if(this.size * 2 == this.entries.length){
+            Object[] entries = new Object[Math.min(this.size * 2, THRESHOLD) * 2];
+            System.arraycopy(this.entries, 0, entries, 0, this.entries.length);
+            this.entries = entries;
+        }
+        this.entries[this.size * 2] = key;
+        this.entries[this.size * 2 + 1] = value;
+        this.size++;
+        return null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        this.checkNotFrozen();
+        if(this.map != null){
+            return this.map.remove(key);
+        }
+        int index = this.indexOf(key);
+        if(index == -1){
+            return null;
+        }
+        Object previous = this.entries[index * 2 + 1];
+        this.removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return this.map != null ? this.map.size() : this.size;
+    }
+
+    @Override
+    public void clear() {
+        this.checkNotFrozen();
+        this.map = null;
+        this.entries = null;
+        this.size = 0;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                if(map != null){
+                    return frozen ? Collections.unmodifiableMap(map).entrySet().iterator() : map.entrySet().iterator();
+                }
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return CompactMap.this.size();
+            }
+        };
+    }
+
+    @Override
+    public int hashCode() {
+        if(!this.frozen){
+            return super.hashCode();
+        }
+        // Frozen maps are compared over and over while canonicalizing, their hash can't change
+        int hash = this.hash;
+        if(hash == 0){
+            hash = this.hash = super.hashCode();
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        // Canonical sections replace each other, so two frozen maps are only equal when the keys are in the same order too
+        if(this.frozen && o instanceof CompactMap && ((CompactMap) o).frozen){
+            return this.equalsInOrder((CompactMap) o);
+        }
+        return super.equals(o);
+    }
+
+    private boolean equalsInOrder(CompactMap other) {
+        if(this == other){
+            return true;
+        }
+        if(this.size() != other.size() || this.hashCode() != other.hashCode()){
+            return false;
+        }
+        Iterator<Entry<String, Object>> iterator = this.entrySet().iterator();
+        Iterator<Entry<String, Object>> otherIterator = other.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry<String, Object> entry = iterator.next();
+            Entry<String, Object> otherEntry = otherIterator.next();
+            if(!entry.getKey().equals(otherEntry.getKey()) || !Objects.equals(entry.getValue(), otherEntry.getValue())){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void freeze() {
+        this.frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkNotFrozen() {
+        if(this.frozen){
+            throw new UnsupportedOperationException("This section is shared, write it through its Configuration");
+        }
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < this.size; i++) {
+            Object o = this.entries[i * 2];
+            // Keys are usually interned, so identity almost always answers first
+            if(o == key || Objects.equals(o, key)){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int index) {
+        int moved = (this.size - index - 1) * 2;
+        if(moved > 0){
+            System.arraycopy(this.entries, index * 2 + 2, this.entries, index * 2, moved);
+        }
+        this.size--;
+        this.entries[this.size * 2] = null;
+        this.entries[this.size * 2 + 1] = null;
+    }
+
+    private class EntryIterator implements Iterator<Entry<String, Object>> {
+
+        private int next;
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            return this.next < size;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if(!this.hasNext()){
+                throw new NoSuchElementException();
+            }
+            this.last = this.next++;
+            int index = this.last;
+            return new SimpleEntry<String, Object>((String) entries[index * 2], entries[index * 2 + 1]) {
+                @Override
+                public Object setValue(Object value) {
+                    checkNotFrozen();
+                    entries[index * 2 + 1] = value;
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if(this.last == -1){
+                throw new IllegalStateException();
+            }
+            checkNotFrozen();
+            removeAt(this.last);
+            this.next = this.last;
+            this.last = -1;
+        }
+    }
+}
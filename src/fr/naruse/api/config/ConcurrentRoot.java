@@ -0,0 +1,140 @@
+package fr.naruse.api.config;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+// Root of a concurrent configuration. Each top-level section is replaced on its own, so a write copies one section
+// and only waits for writes to that same section. The sections themselves are never changed in place.
+// Keeps the insertion order of the other maps of the tree, it is only paid for when iterating.
+final class ConcurrentRoot extends AbstractMap<String, Object> {
+
+    private final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<>();
+    private final AtomicLong order = new AtomicLong();
+
+    ConcurrentRoot(Map<String, Object> map) {
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            this.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        Slot slot = this.slots.get(key);
+        return slot == null ? null : slot.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.slots.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return this.slots.size();
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        return this.update(key, previous -> value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        Slot slot = this.slots.remove(key);
+        return slot == null ? null : slot.value;
+    }
+
+    @Override
+    public void clear() {
+        this.slots.clear();
+    }
+
+    // Atomic for the key, the function gets the current value and returns the new one, null removes it.
+    // Returns the value it replaced.
+    Object update(String key, UnaryOperator<Object> function) {
+        Object[] previous = new Object[1];
+        this.slots.compute(key, (k, slot) -> {
+            previous[0] = slot == null ? null : slot.value;
+            Object value = function.apply(previous[0]);
+            if(value == null){
+                return null;
+            }
+            return new Slot(k, slot == null ? this.order.getAndIncrement() : slot.order, value);
+        });
+        return previous[0];
+    }
+
+    // Ordered copy of the top-level entries, the sections are shared since they are never changed in place
+    Map<String, Object> snapshot() {
+        Map<String, Object> map = new CompactMap();
+        for (Slot slot : this.ordered()) {
+            map.put(slot.key, slot.value);
+        }
+        return map;
+    }
+
+    private List<Slot> ordered() {
+        List<Slot> slots = new ArrayList<>(this.slots.values());
+        slots.sort((a, b) -> Long.compare(a.order, b.order));
+        return slots;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                Iterator<Slot> iterator = ordered().iterator();
+                return new Iterator<Entry<String, Object>>() {
+                    private Slot last;
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        this.last = iterator.next();
+                        return new SimpleImmutableEntry<>(this.last.key, this.last.value);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if(this.last == null){
+                            throw new IllegalStateException();
+                        }
+                        slots.remove(this.last.key, this.last);
+                        this.last = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return slots.size();
+            }
+        };
+    }
+
+    private static final class Slot {
+
+        private final String key;
+        private final long order;
+        private final Object value;
+
+        private Slot(String key, long order, Object value) {
+            this.key = key;
+            this.order = order;
+            this.value = value;
+        }
+    }
+}
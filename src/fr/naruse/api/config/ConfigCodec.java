@@ -0,0 +1,35 @@
+package fr.naruse.api.config;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+public interface ConfigCodec {
+
+    ConfigCodec JSON = new JsonConfigCodec();
+    // Same JSON without indentation, for files only read by machines
+    ConfigCodec COMPACT_JSON = new JsonConfigCodec(false);
+    ConfigCodec BINARY = new BinaryConfigCodec(false);
+    ConfigCodec COMPRESSED_BINARY = new BinaryConfigCodec(true);
+
+    // Returns null when the input holds no document
+    Map<String, Object> read(InputStream inputStream, NumberMode numberMode) throws IOException;
+
+    void write(Map<String, Object> tree, OutputStream outputStream) throws IOException;
+
+    static void migrate(File source, ConfigCodec sourceCodec, File target, ConfigCodec targetCodec) throws IOException {
+        Map<String, Object> tree;
+        try(InputStream inputStream = new BufferedInputStream(new FileInputStream(source))){
+            // Exact numbers so nothing is lost whatever the codecs are
+            tree = sourceCodec.read(inputStream, NumberMode.LAZY);
+        }
+        if(tree == null){
+            throw new IOException("'"+source.getName()+"' is empty");
+        }
+        ConfigurationSaver.writeAtomically(target, outputStream -> targetCodec.write(tree, outputStream));
+    }
+}
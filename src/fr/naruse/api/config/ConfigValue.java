@@ -0,0 +1,148 @@
+package fr.naruse.api.config;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// Handle on one value of a configuration, the converted value is kept until the configuration changes.
+// A read that hits the cache costs a volatile read of the version and a field load.
+public class ConfigValue<T> extends ValueHandle {
+
+    private final Class<T> type;
+
+    ConfigValue(Configuration configuration, Object[] parents, String key, Class<T> type) {
+        super(configuration, parents, key);
+        this.type = type;
+    }
+
+    public T get() {
+        return (T) this.cached().object;
+    }
+
+    public T get(T def) {
+        T value = this.get();
+        return value != null ? value : def;
+    }
+
+    public void set(T value) {
+        this.write(value instanceof Enum ? ((Enum<?>) value).name() : value);
+    }
+
+    @Override
+    Cached convert(long version, Object o) {
+        return new Cached(version, convert(o, this.type), 0);
+    }
+
+    private static <T> T convert(Object o, Class<T> type) {
+        if(o == null){
+            return null;
+        }
+        if(type.isEnum()){
+            return (T) Enum.valueOf((Class<Enum>) type, o.toString());
+        }
+        if(type == String.class){
+            return (T) o.toString();
+        }
+        if(type == Integer.class){
+            return (T) Integer.valueOf(Configuration.toInt(o));
+        }
+        if(type == Long.class){
+            return (T) Long.valueOf(Configuration.toLong(o));
+        }
+        if(type == Double.class){
+            return (T) Double.valueOf(Configuration.toDouble(o));
+        }
+        if(type == Float.class){
+            return (T) Float.valueOf((float) Configuration.toDouble(o));
+        }
+        if(type == Boolean.class){
+            return (T) Boolean.valueOf(o.toString());
+        }
+        if(type.isInstance(o) && !(o instanceof Map) && !(o instanceof List)){
+            return (T) o;
+        }
+        // Sections and lists are bound to a fresh object so the cached value can't write through the tree
+        return ConfigurationBinder.bind(o, type);
+    }
+
+    // Primitive handles read 0 or false while the value is missing
+    public static class IntValue extends ValueHandle {
+
+        IntValue(Configuration configuration, Object[] parents, String key) {
+            super(configuration, parents, key);
+        }
+
+        public int get() {
+            return (int) this.cached().bits;
+        }
+
+        public void set(int value) {
+            this.write(value);
+        }
+
+        @Override
+        Cached convert(long version, Object o) {
+            return new Cached(version, null, o == null ? 0 : Configuration.toInt(o));
+        }
+    }
+
+    public static class LongValue extends ValueHandle {
+
+        LongValue(Configuration configuration, Object[] parents, String key) {
+            super(configuration, parents, key);
+        }
+
+        public long get() {
+            return this.cached().bits;
+        }
+
+        public void set(long value) {
+            this.write(value);
+        }
+
+        @Override
+        Cached convert(long version, Object o) {
+            return new Cached(version, null, o == null ? 0 : Configuration.toLong(o));
+        }
+    }
+
+    public static class DoubleValue extends ValueHandle {
+
+        DoubleValue(Configuration configuration, Object[] parents, String key) {
+            super(configuration, parents, key);
+        }
+
+        public double get() {
+            return Double.longBitsToDouble(this.cached().bits);
+        }
+
+        public void set(double value) {
+            this.write(value);
+        }
+
+        @Override
+        Cached convert(long version, Object o) {
+            return new Cached(version, null, Double.doubleToRawLongBits(o == null ? 0 : Configuration.toDouble(o)));
+        }
+    }
+
+    public static class BooleanValue extends ValueHandle {
+
+        BooleanValue(Configuration configuration, Object[] parents, String key) {
+            super(configuration, parents, key);
+        }
+
+        public boolean get() {
+            return this.cached().bits != 0;
+        }
+
+        public void set(boolean value) {
+            this.write(value);
+        }
+
+        @Override
+        Cached convert(long version, Object o) {
+            return new Cached(version, null, o != null && Boolean.parseBoolean(o.toString()) ? 1 : 0);
+        }
+    }
+}
@@ -2,29 +2,75 @@ package fr.naruse.api.config;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.internal.bind.TypeAdapters;
 import com.google.gson.reflect.TypeToken;
 import fr.naruse.api.logging.GlobalLogger;
 
 import java.io.*;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class Configuration {
 
     public static final Gson GSON = new GsonBuilder()
             .setPrettyPrinting()
+            .registerTypeAdapter(LazilyParsedNumber.class, TypeAdapters.NUMBER)
             .create();
     public static final Type MAP_TYPE = new TypeToken<Map<String, Object>>(){}.getType();
     public static final GlobalLogger.Logger LOGGER = new GlobalLogger.Logger("ConfigurationLoader");
+    private static final int BUFFER_SIZE = 16 * 1024;
+    // Above these sizes files skip the char decoding layers, and past the second one they are mapped instead of copied
+    private static final long BYTE_READ_THRESHOLD = 256 * 1024;
+    private static final long MAPPED_READ_THRESHOLD = 16 * 1024 * 1024;
+    // Windows refuses to replace a file while a mapping of it is alive, and the mapping lives until the buffer is collected
+    private static final boolean MAPPING_ALLOWED = !System.getProperty("os.name", "").startsWith("Windows");
+    private static volatile NumberMode defaultNumberMode = NumberMode.DOUBLE;
+    private static volatile boolean defaultLazy;
+    private static final Object[] ROOT = new Object[0];
+    private static final AtomicLongFieldUpdater<Configuration> VERSION = AtomicLongFieldUpdater.newUpdater(Configuration.class, "version");
+    private static final AtomicLongFieldUpdater<Configuration> STRUCTURE_VERSION = AtomicLongFieldUpdater.newUpdater(Configuration.class, "structureVersion");
 
     private File file;
     private String defaultResourceName;
     private boolean loadDefaultResource;
-    private Map<String, Object> map = new HashMap<>();
+    private volatile Map<String, Object> map;
+    private NumberMode numberMode = defaultNumberMode;
+    private ConfigCodec codec = ConfigCodec.JSON;
+    private ConfigurationJournal journal;
+    private boolean lazy = defaultLazy;
+    private volatile boolean concurrent;
+    // Held shared by concurrent writes, which only wait for each other within a top-level section, and exclusively to replace the tree
+    private volatile ReentrantReadWriteLock lock;
+    private boolean frozen;
+    // Nodes copied since the last snapshot, true once everything under the node is copied too
+    private Map<Object, Boolean> owned;
+    private Configuration parent;
+    private Object[] basePath;
+    private volatile boolean dirty;
+    private volatile long version;
+    private volatile long structureVersion;
+    // Created on first use, a list of sections makes one view per element and most never need them
+    private volatile WeakValueCache<ConfigurationSection> sections;
+    private volatile ConfigurationListeners listeners;
+    private volatile Set<String> dirtySections;
 
     public Configuration() {
         this("{}");
@@ -55,12 +101,45 @@ public class Configuration {
     }
 
     public Configuration(Map<String, Object> map) {
-        this(GSON.toJson(map));
+        this(map, true);
+    }
+
+    private Configuration(Map<String, Object> map, boolean copy) {
+        this.map = copy ? ConfigurationBinder.copyTree(map, this.numberMode) : map;
+    }
+
+    private Configuration(Configuration parent, Object[] basePath) {
+        this.parent = parent;
+        this.basePath = basePath;
+        this.numberMode = parent.numberMode;
+    }
+
+    public static Configuration wrap(Map<String, Object> map) {
+        return new Configuration(map, false);
+    }
+
+    public static Configuration copyOf(Map<String, Object> map) {
+        return new Configuration(map, true);
     }
 
     private InputStream defaultResourceStream;
+    private ClassLoader defaultResourceLoader;
+    private String defaultResourcePath;
+    private ConfigurationDefaults defaults;
     public Configuration(File file, Class clazz, String path) {
-        this(file, clazz.getClassLoader().getResourceAsStream(path));
+        this.file = file;
+        this.defaultResourceName = path;
+        this.loadDefaultResource = true;
+        this.defaultResourceLoader = clazz.getClassLoader();
+        this.defaultResourcePath = path;
+
+        LOGGER.info("Loading '"+file.getName()+"'...");
+        try {
+            this.reload();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        LOGGER.info("'"+file.getName()+"' loaded");
     }
 
     public Configuration(File file, InputStream defaultResourceStream) {
@@ -78,10 +157,16 @@ public class Configuration {
         LOGGER.info("'"+file.getName()+"' loaded");
     }
 
+    public Configuration(File file, ConfigCodec codec) {
+        this(file, file.getName(), true, codec);
+    }
+
     public Configuration(File file, String defaultResourceName, boolean loadDefaultResource) {
-        this.file = file;
-        this.defaultResourceName = defaultResourceName;
-        this.loadDefaultResource = loadDefaultResource;
+        this(file, defaultResourceName, loadDefaultResource, ConfigCodec.JSON);
+    }
+
+    public Configuration(File file, String defaultResourceName, boolean loadDefaultResource, ConfigCodec codec) {
+        this(file, codec, defaultResourceName, loadDefaultResource);
 
         LOGGER.info("Loading '"+file.getName()+"'...");
         try {
@@ -92,9 +177,41 @@ public class Configuration {
         LOGGER.info("'"+file.getName()+"' loaded");
     }
 
+    // Not loaded yet, the caller reloads it and reports failures itself
+    Configuration(File file, ConfigCodec codec, String defaultResourceName, boolean loadDefaultResource) {
+        this.file = file;
+        this.defaultResourceName = defaultResourceName;
+        this.loadDefaultResource = loadDefaultResource;
+        this.codec = codec;
+        this.defaultResourceLoader = Configuration.class.getClassLoader();
+        this.defaultResourcePath = "resources/"+defaultResourceName;
+    }
+
     public void reload() throws IOException {
+        this.checkWritable();
         if(this.json != null){
-            this.map = GSON.fromJson(json, MAP_TYPE);
+            Map<String, Object> map = this.read(new StringReader(this.json));
+            Map<String, Object> old;
+            Lock lock = this.lock().writeLock();
+            lock.lock();
+            try{
+                old = this.map;
+                this.map = this.adopt(map != null ? map : new HashMap<>());
+                this.owned = null;
+                STRUCTURE_VERSION.incrementAndGet(this);
+                VERSION.incrementAndGet(this);
+            }finally {
+                lock.unlock();
+            }
+            this.clearDirty();
+            this.fireChanges(old);
+            return;
+        }
+        if(this.map == null && this.parent == null){
+            // Starts empty, a first load failing below would otherwise leave every get and set throwing
+            this.map = this.adopt(new HashMap<>());
+        }
+        if(this.file == null){
             return;
         }
 
@@ -103,84 +220,208 @@ public class Configuration {
             this.file.createNewFile();
         }
 
-        FileInputStream baseFileInputStream = new FileInputStream(file);
-        InputStreamReader baseInputStreamReader = new InputStreamReader(baseFileInputStream, "UTF-8");
-        BufferedReader baseReader = new BufferedReader(baseInputStreamReader);
-
-        Map<String, Object> map = GSON.fromJson(baseReader.lines().collect(Collectors.joining()), MAP_TYPE);
-        if(map != null){
-            this.map = map;
+        if(this.journal != null){
+            // The base file may be about to be replaced by a compaction still running
+            this.journal.awaitCompaction();
         }
 
-        baseReader.close();
-        baseFileInputStream.close();
-        baseFileInputStream.close();
+        Map<String, Object> map;
+        if(!(this.codec instanceof JsonConfigCodec)){
+            try(InputStream inputStream = new BufferedInputStream(new FileInputStream(this.file), BUFFER_SIZE)){
+                map = this.codec.read(inputStream, this.numberMode);
+            }
+        }else if(this.lazy){
+            map = new Utf8JsonReader(this.numberMode).readLazyRoot(readBuffer(this.file));
+        }else if(ConfigurationCache.isEnabled()){
+            map = ConfigurationCache.load(this.file, this.numberMode);
+        }else{
+            map = this.read(this.file);
+        }
+        // Replayed even when not journaled anymore, otherwise the changes only saved in it would be lost
+        if(ConfigurationJournal.exists(this.file)){
+            if(map == null){
+                map = new CompactMap();
+            }
+            ConfigurationJournal.replay(this.file, map, this.numberMode);
+        }
 
-        this.fill();
+        // Swapped under the lock, a concurrent write would otherwise publish its copy of the old tree over this one
+        Map<String, Object> old;
+        boolean filled;
+        Lock lock = this.lock().writeLock();
+        lock.lock();
+        try{
+            if(this.journal != null){
+                this.journal.reset();
+            }
+            if(map == null){
+                if(this.map == null){
+                    map = new HashMap<>();
+                }else{
+                    map = this.isShared() || this.hasListeners() ? copy(this.map) : this.map;
+                }
+            }
+            this.clearDirty();
+
+            old = this.map;
+            filled = this.fill(map);
+            this.map = this.adopt(map);
+            this.owned = null;
+            STRUCTURE_VERSION.incrementAndGet(this);
+            VERSION.incrementAndGet(this);
+        }finally {
+            lock.unlock();
+        }
+        this.fireChanges(old);
+        if(filled){
+            this.save();
+        }
     }
 
     public void fill(){
-        if(!this.loadDefaultResource) {
+        this.checkWritable();
+        if(!this.isShared()){
+            // Filled in place, the listeners need a copy of what it was before
+            Map<String, Object> old = !this.hasListeners() ? null : copy(this.map);
+            if(this.fill(this.map)){
+                STRUCTURE_VERSION.incrementAndGet(this);
+                VERSION.incrementAndGet(this);
+                this.fireChanges(old);
+                this.save();
+            }
             return;
         }
-        InputStream inputStream = this.defaultResourceStream != null ? this.defaultResourceStream : Configuration.class.getClassLoader().getResourceAsStream("resources/"+this.defaultResourceName);
-        if(inputStream != null) {
-            try{
-                InputStreamReader inputStreamReader = new InputStreamReader(inputStream, "UTF-8");
-                BufferedReader reader = new BufferedReader(inputStreamReader);
 
-                String json = reader.lines().collect(Collectors.joining());
+        boolean filled;
+        Map<String, Object> old;
+        Lock lock = this.lock().writeLock();
+        lock.lock();
+        try{
+            old = this.map;
+            Map<String, Object> map = copy(this.map);
+            filled = this.fill(map);
+            if(filled){
+                this.map = this.adopt(map);
+                this.owned = null;
+                STRUCTURE_VERSION.incrementAndGet(this);
+                VERSION.incrementAndGet(this);
+            }
+        }finally {
+            lock.unlock();
+        }
+        if(filled){
+            this.fireChanges(old);
+            this.save();
+        }
+    }
+
+    private boolean fill(Map<String, Object> map){
+        if(!this.loadDefaultResource || map == null) {
+            return false;
+        }
+        try{
+            ConfigurationDefaults defaults = this.getDefaults();
+            if(defaults == null){
+                return false;
+            }
+
+            List<String> changedKeys = new ArrayList<>();
+            if(!defaults.fill(map, this.numberMode, changedKeys)){
+                return false;
+            }
+            for (String key : changedKeys) {
+                this.markDirty(key);
+            }
+            if(this.journal != null){
+                this.journal.requireRewrite();
+            }
+            return true;
+        }catch (Exception e){
+            if(e.getMessage() != null && e.getMessage().contains("ZipFile")){
+                return false;
+            }
+            e.printStackTrace();
+        }
+        return false;
+    }
 
-                reader.close();
-                inputStreamReader.close();
-                inputStream.close();
+    private ConfigurationDefaults getDefaults() throws IOException {
+        if(this.defaultResourceStream != null){
+            // A raw stream can only be read once, keep what it contained for the next reloads
+            InputStream inputStream = this.defaultResourceStream;
+            this.defaultResourceStream = null;
+            this.defaults = ConfigurationDefaults.read(inputStream);
+        }
+        if(this.defaults != null || this.defaultResourceLoader == null){
+            return this.defaults;
+        }
+        return ConfigurationDefaults.get(this.defaultResourceLoader, this.defaultResourcePath);
+    }
 
-                Map<String, Object> resourceMap = GSON.fromJson(json, MAP_TYPE);
+    static Reader newReader(InputStream inputStream) {
+        return new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
 
-                if(this.map != null){
-                    this.fillMap(this.map, resourceMap);
-                }
+    private Map<String, Object> read(Reader reader) throws IOException {
+        return new ConfigurationTreeReader(this.numberMode).readRoot(reader);
+    }
 
-                this.save();
-            }catch (Exception e){
-                if(e.getMessage().contains("ZipFile")){
-                    return;
-                }
-                e.printStackTrace();
+    private Map<String, Object> read(File file) throws IOException {
+        if(file.length() < BYTE_READ_THRESHOLD){
+            try(Reader reader = newReader(new FileInputStream(file))){
+                return this.read(reader);
             }
         }
+
+        return new Utf8JsonReader(this.numberMode).readRoot(readBuffer(file));
     }
 
-    private void fillMap(Map<String, Object> map, Map<String, Object> resourceMap){
-        for (String key : resourceMap.keySet()) {
-            if(!map.containsKey(key)){
-                map.put(key, resourceMap.get(key));
-            }else if(resourceMap.get(key) instanceof Map){
-                fillMap((Map<String, Object>) map.get(key), (Map<String, Object>) resourceMap.get(key));
+    private static ByteBuffer readBuffer(File file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+            long size = channel.size();
+            if(MAPPING_ALLOWED && size >= MAPPED_READ_THRESHOLD){
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
             }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) != -1);
+            buffer.flip();
+            return buffer;
         }
     }
 
+    private static <T> T copy(T o){
+        if(o instanceof Map){
+            Map<String, Object> map = (Map<String, Object>) o;
+            Map<String, Object> copy = new CompactMap();
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                copy.put(entry.getKey(), copy(entry.getValue()));
+            }
+            return (T) copy;
+        }else if(o instanceof List){
+            List<Object> list = (List<Object>) o;
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object value : list) {
+                copy.add(copy(value));
+            }
+            return (T) copy;
+        }
+        return o;
+    }
+
     public <T> T get(String path){
-        return (T) this.map.get(path);
+        return (T) this.readOnly(ROOT, path, ConfigurationPath.get(this.root(), path));
     }
 
     public int getInt(String path){
-        Object o = get(path);
-        if(o instanceof Double){
-            int i = (int) (double) o;
-            o = i;
-        }
-        return (int) o;
+        return toInt(get(path));
     }
 
     public long getLong(String path){
-        Object o = get(path);
-        if(o instanceof Double){
-            long i = (long) (double) o;
-            o = i;
-        }
-        return (long) o;
+        return toLong(get(path));
+    }
+
+    public double getDouble(String path){
+        return toDouble(get(path));
     }
 
     public boolean getBoolean(String path){
@@ -188,24 +429,66 @@ public class Configuration {
     }
 
     public void set(String path, Object o){
-        if(o == null){
-            this.map.remove(path);
-        }else{
-            this.map.put(path, o);
-        }
+        this.set(ROOT, path, o);
+    }
+
+    // Writes the key as is, for keys holding dots like IPs or permission nodes that set() would split into sections
+    public void setLiteral(String key, Object o){
+        this.write(ROOT, key, o);
+    }
+
+    public ConfigValue.IntValue intValue(String path){
+        return new ConfigValue.IntValue(this, ROOT, path);
+    }
+
+    public ConfigValue.LongValue longValue(String path){
+        return new ConfigValue.LongValue(this, ROOT, path);
+    }
+
+    public ConfigValue.DoubleValue doubleValue(String path){
+        return new ConfigValue.DoubleValue(this, ROOT, path);
+    }
+
+    public ConfigValue.BooleanValue booleanValue(String path){
+        return new ConfigValue.BooleanValue(this, ROOT, path);
+    }
+
+    public <T> ConfigValue<T> value(String path, Class<T> type){
+        return new ConfigValue<>(this, ROOT, path, type);
     }
 
     public ConfigurationSection newSection(String path){
-        this.map.put(path, new HashMap<>());
-        return new ConfigurationSection(path);
+        this.set(ROOT, path, new HashMap<>());
+        return this.getSection(path);
     }
 
     public boolean contains(String path){
-        return this.map.containsKey(path);
+        return ConfigurationPath.contains(this.root(), path);
     }
 
     public ConfigurationSection getSection(String path){
-        return new ConfigurationSection(path);
+        if(ConfigurationPath.isDotted(path) && !this.root().containsKey(path)){
+            String[] segments = ConfigurationPath.compile(path);
+            ConfigurationSection section = this.getSection(segments[0]);
+            for (int i = 1; i < segments.length; i++) {
+                section = section.getSection(segments[i]);
+            }
+            return section;
+        }
+        WeakValueCache<ConfigurationSection> sections = this.sections;
+        if(sections == null){
+            synchronized (this){
+                if(this.sections == null){
+                    this.sections = new WeakValueCache<>();
+                }
+                sections = this.sections;
+            }
+        }
+        ConfigurationSection section = sections.get(path);
+        if(section == null){
+            section = sections.computeIfAbsent(path, ConfigurationSection::new);
+        }
+        return section;
     }
 
     public ConfigurationSectionMain getMainSection(){
@@ -213,54 +496,872 @@ public class Configuration {
     }
 
     public void setClass(Object clazz){
-        String json = GSON.toJson(clazz);
-        this.map = GSON.fromJson(json, MAP_TYPE);
+        this.checkWritable();
+        Object tree = ConfigurationBinder.toTree(clazz, this.numberMode);
+        if(!(tree instanceof Map)){
+            throw new IllegalArgumentException(clazz+" is not serialized as a JSON object");
+        }
+        if(this.parent != null){
+            this.replaceRoot(tree);
+            return;
+        }
+        Map<String, Object> old;
+        Lock lock = this.lock().writeLock();
+        lock.lock();
+        try{
+            old = this.map;
+            this.map = this.adopt((Map<String, Object>) tree);
+            this.owned = null;
+            STRUCTURE_VERSION.incrementAndGet(this);
+            VERSION.incrementAndGet(this);
+        }finally {
+            lock.unlock();
+        }
+        this.markDirty();
+        this.fireChanges(old);
     }
 
     public void clear(){
-        this.map.clear();
+        this.checkWritable();
+        if(this.parent != null){
+            this.replaceRoot(new HashMap<>());
+            return;
+        }
+        Map<String, Object> old;
+        Lock lock = this.lock().writeLock();
+        lock.lock();
+        try{
+            old = this.map;
+            if(this.isShared()){
+                this.map = this.adopt(new HashMap<>());
+                this.owned = null;
+            }else{
+                if(this.hasListeners()){
+                    old = new CompactMap(old);
+                }
+                this.map.clear();
+            }
+            STRUCTURE_VERSION.incrementAndGet(this);
+            VERSION.incrementAndGet(this);
+        }finally {
+            lock.unlock();
+        }
+        this.markDirty();
+        this.fireChanges(old);
+    }
+
+    // Shares equal subtrees between every compacted configuration, they are copied before the first write or read of a map or list
+    public void compact(){
+        this.checkWritable();
+        if(this.parent != null){
+            this.parent.compact();
+            return;
+        }
+        Lock lock = this.lock().writeLock();
+        lock.lock();
+        try{
+            Map<String, Object> root = new CompactMap();
+            for (Map.Entry<String, Object> entry : this.map.entrySet()) {
+                root.put(entry.getKey(), TreeCanonicalizer.canonicalize(entry.getValue()));
+            }
+            if(!this.concurrent){
+                this.owned = new IdentityHashMap<>();
+                this.owned.put(root, Boolean.FALSE);
+            }
+            this.map = this.adopt(root);
+            STRUCTURE_VERSION.incrementAndGet(this);
+        }finally {
+            lock.unlock();
+        }
+    }
+
+    public Configuration snapshot(){
+        if(this.parent != null){
+            this.root();
+            Configuration snapshot = new Configuration((Map<String, Object>) this.parent.snapshot().resolve(this.basePath), false);
+            snapshot.numberMode = this.numberMode;
+            snapshot.frozen = true;
+            return snapshot;
+        }
+        // Until the tree is replaced by a reload, clear or setClass, nodes are copied before being written or handed out as maps and lists
+        Map<String, Object> map;
+        Lock lock = this.lock().writeLock();
+        lock.lock();
+        try{
+            if(!this.concurrent && !this.frozen){
+                this.owned = new IdentityHashMap<>();
+            }
+            // Under the lock the sections copied from a concurrent root are all from the same point in time
+            map = this.map instanceof ConcurrentRoot ? ((ConcurrentRoot) this.map).snapshot() : this.map;
+        }finally {
+            lock.unlock();
+        }
+        Configuration snapshot = new Configuration(map, false);
+        snapshot.numberMode = this.numberMode;
+        snapshot.frozen = true;
+        return snapshot;
+    }
+
+    public boolean isSnapshot() {
+        return frozen;
+    }
+
+    // Bumped by every change of the tree, value handles compare it with the version they cached
+    public long getVersion(){
+        return this.parent != null ? this.parent.getVersion() : this.version;
+    }
+
+    // Only bumped when sections may have moved, so section handles keep their resolved map across value writes
+    public long getStructureVersion(){
+        return this.parent != null ? this.parent.getStructureVersion() : this.structureVersion;
+    }
+
+    // Missing sections on a dotted path are created, unless the value is removed
+    void set(Object[] parents, String path, Object o){
+        Map<String, Object> map = (Map<String, Object>) this.resolve(parents);
+        if(!ConfigurationPath.isDotted(path) || map.containsKey(path)){
+            this.write(parents, path, o);
+            return;
+        }
+
+        String[] segments = ConfigurationPath.compile(path);
+        Object[] keys = Arrays.copyOf(parents, parents.length + segments.length - 1);
+        Object node = map;
+        for (int i = 0; i < segments.length - 1; i++) {
+            Object child = ((Map<String, Object>) node).get(segments[i]);
+            keys[parents.length + i] = segments[i];
+            if(!(child instanceof Map)){
+                if(o == null){
+                    return;
+                }
+                this.write(Arrays.copyOf(keys, parents.length + i), segments[i], new CompactMap());
+                child = this.resolve(Arrays.copyOf(keys, parents.length + i + 1));
+            }
+            node = child;
+        }
+        this.write(keys, segments[segments.length - 1], o);
+    }
+
+    void write(Object[] parents, Object path, Object o){
+        this.checkWritable();
+        if(this.parent != null){
+            // Fails here rather than writing into whatever took the place of the element
+            this.root();
+            Object[] fullPath = Arrays.copyOf(this.basePath, this.basePath.length + parents.length);
+            System.arraycopy(parents, 0, fullPath, this.basePath.length, parents.length);
+            this.parent.write(fullPath, path, o);
+            return;
+        }
+        Object previous;
+        if(this.concurrent){
+            boolean listened = this.hasListeners();
+            Object[] replaced = new Object[1];
+            Lock lock = this.lock().readLock();
+            lock.lock();
+            try{
+                // Only the top-level section written to is copied, along the path
+                String key = String.valueOf(parents.length == 0 ? path : parents[0]);
+                Object current = ((ConcurrentRoot) this.map).update(key, section -> {
+                    Object updated;
+                    if(parents.length == 0){
+                        updated = o;
+                    }else{
+                        if(listened){
+                            replaced[0] = childAt(section, parents, path);
+                        }
+                        updated = copyPath(section, parents, 1, path, o);
+                    }
+                    // Recorded while the section is held so the journal keeps the order its writes were applied in
+                    this.record(parents, path, o);
+                    return updated;
+                });
+                previous = parents.length == 0 ? current : replaced[0];
+                STRUCTURE_VERSION.incrementAndGet(this);
+                VERSION.incrementAndGet(this);
+                this.markDirty(key);
+            }finally {
+                lock.unlock();
+            }
+        }else{
+            // Copies made for ownership and replaced containers move sections, plain values are written in place
+            boolean structural = this.owned != null || o instanceof Map || o instanceof List;
+            Object node = this.own(this.map, null, null);
+            for (Object parent : parents) {
+                node = this.own(child(node, parent), node, parent);
+            }
+            previous = child(node, path);
+            put(node, path, o);
+            if(structural || previous instanceof Map || previous instanceof List){
+                STRUCTURE_VERSION.incrementAndGet(this);
+            }
+            VERSION.incrementAndGet(this);
+            this.record(parents, path, o);
+            this.markDirty(String.valueOf(parents.length == 0 ? path : parents[0]));
+        }
+
+        if(this.hasListeners()){
+            Object[] changedPath = Arrays.copyOf(parents, parents.length + 1);
+            changedPath[parents.length] = path;
+            this.listeners.changed(changedPath, previous, o);
+        }
+    }
+
+    private void record(Object[] parents, Object path, Object o){
+        if(this.journal != null){
+            Object[] recordPath = Arrays.copyOf(parents, parents.length + 1);
+            recordPath[parents.length] = path;
+            this.journal.record(recordPath, o);
+        }
+    }
+
+    private void fireChanges(Map<String, Object> old){
+        if(old != null && this.hasListeners()){
+            this.listeners.changed(ROOT, old, this.map);
+        }
+    }
+
+    public void subscribe(String path, ConfigurationListener listener){
+        if(this.parent != null){
+            this.parent.subscribe(this.getAbsolutePath(path), listener);
+            return;
+        }
+        this.listeners().subscribe(path, listener, false);
+    }
+
+    // Called for every changed value under the path instead of once for the whole section
+    public void subscribePrefix(String path, ConfigurationListener listener){
+        if(this.parent != null){
+            this.parent.subscribePrefix(this.getAbsolutePath(path), listener);
+            return;
+        }
+        this.listeners().subscribe(path, listener, true);
+    }
+
+    public void unsubscribe(String path, ConfigurationListener listener){
+        if(this.parent != null){
+            this.parent.unsubscribe(this.getAbsolutePath(path), listener);
+            return;
+        }
+        if(this.listeners != null){
+            this.listeners.unsubscribe(path, listener);
+        }
+    }
+
+    private boolean hasListeners(){
+        ConfigurationListeners listeners = this.listeners;
+        return listeners != null && !listeners.isEmpty();
+    }
+
+    private ConfigurationListeners listeners(){
+        ConfigurationListeners listeners = this.listeners;
+        if(listeners == null){
+            synchronized (this){
+                if(this.listeners == null){
+                    this.listeners = new ConfigurationListeners();
+                }
+                listeners = this.listeners;
+            }
+        }
+        return listeners;
+    }
+
+    private ReentrantReadWriteLock lock(){
+        if(this.parent != null){
+            return this.parent.lock();
+        }
+        ReentrantReadWriteLock lock = this.lock;
+        if(lock == null){
+            synchronized (this){
+                if(this.lock == null){
+                    this.lock = new ReentrantReadWriteLock();
+                }
+                lock = this.lock;
+            }
+        }
+        return lock;
+    }
+
+    // A concurrent root swaps its top-level sections one by one, the sections below it are never changed in place
+    private Map<String, Object> adopt(Map<String, Object> map){
+        return this.concurrent ? new ConcurrentRoot(map) : map;
+    }
+
+    private String getAbsolutePath(String path){
+        String base = ConfigurationListeners.join(this.basePath);
+        return base.isEmpty() ? path : path.isEmpty() ? base : base+"."+path;
+    }
+
+    private void replaceRoot(Object o){
+        this.parent.write(Arrays.copyOf(this.basePath, this.basePath.length - 1), this.basePath[this.basePath.length - 1], o);
+    }
+
+    private Object own(Object node, Object parent, Object path){
+        // Nodes reachable from the last snapshot are shared with it, copy them before the first write
+        if(this.owned == null || node == null || this.owned.containsKey(node)){
+            return node;
+        }
+        Object copy = node instanceof List ? new ArrayList<>((List<Object>) node) : shallowCopy((Map<String, Object>) node);
+        this.owned.put(copy, Boolean.FALSE);
+        if(parent == null){
+            this.map = (Map<String, Object>) copy;
+        }else{
+            put(parent, path, copy);
+        }
+        return copy;
+    }
+
+    Object resolve(Object[] path){
+        Object o = this.root();
+        for (Object key : path) {
+            if(!(o instanceof Map) && !(o instanceof List)){
+                return null;
+            }
+            o = child(o, key);
+        }
+        return o;
+    }
+
+    private Map<String, Object> root(){
+        if(this.parent == null){
+            return this.map;
+        }
+        Object root = this.parent.resolve(this.basePath);
+        if(!(root instanceof Map)){
+            // The view was made for a list element, the list shrank or was replaced since
+            throw new IllegalStateException("'"+ConfigurationListeners.join(this.basePath)+"' is not a section anymore");
+        }
+        return (Map<String, Object>) root;
+    }
+
+    private static Object childAt(Object section, Object[] parents, Object path){
+        Object node = section;
+        for (int i = 1; i < parents.length; i++) {
+            if(!(node instanceof Map) && !(node instanceof List)){
+                return null;
+            }
+            node = child(node, parents[i]);
+        }
+        return node instanceof Map || node instanceof List ? child(node, path) : null;
+    }
+
+    private static Object child(Object node, Object key){
+        if(node instanceof List){
+            List<Object> list = (List<Object>) node;
+            int index = (Integer) key;
+            return index < list.size() ? list.get(index) : null;
+        }
+        return ((Map<String, Object>) node).get(key);
+    }
+
+    private static void put(Object node, Object key, Object o){
+        if(node instanceof List){
+            ((List<Object>) node).set((Integer) key, o);
+        }else if(o == null){
+            ((Map<String, Object>) node).remove(key);
+        }else{
+            ((Map<String, Object>) node).put((String) key, o);
+        }
+    }
+
+    private boolean isShared(){
+        return this.concurrent || this.owned != null;
+    }
+
+    private void checkWritable(){
+        if(this.frozen){
+            throw new UnsupportedOperationException("A configuration snapshot is read-only");
+        }
+    }
+
+    private static Object copyPath(Object node, Object[] parents, int depth, Object path, Object o){
+        Object copy;
+        if(node instanceof List){
+            copy = new ArrayList<>((List<Object>) node);
+        }else if(node instanceof Map){
+            copy = shallowCopy((Map<String, Object>) node);
+        }else{
+            throw new IllegalStateException("'"+parents[depth - 1]+"' is not a section");
+        }
+        if(depth == parents.length){
+            put(copy, path, o);
+        }else{
+            put(copy, parents[depth], copyPath(child(node, parents[depth]), parents, depth + 1, path, o));
+        }
+        return copy;
+    }
+
+    private static Map<String, Object> shallowCopy(Map<String, Object> map){
+        // Keeps the sections that were not read yet unparsed
+        return map instanceof LazyMap ? ((LazyMap) map).copy() : new CompactMap(map);
+    }
+
+    // Sections are never changed in place, only a concurrent root is
+    private boolean isImmutable(){
+        return this.parent != null ? this.parent.isImmutable() : this.concurrent || this.frozen;
+    }
+
+    // A tree that can be written out from another thread while this one keeps changing
+    private Map<String, Object> saveCopy(){
+        Map<String, Object> root = this.root();
+        if(root instanceof ConcurrentRoot){
+            return ((ConcurrentRoot) root).snapshot();
+        }
+        return this.isImmutable() ? root : copy(root);
+    }
+
+    // Maps and lists read from a tree shared with snapshots are copied first like a write would,
+    // so they can still be edited and set back without the snapshots seeing it
+    private Object readOnly(Object[] parents, String path, Object o){
+        if(o == null || o instanceof Number || o instanceof String || o instanceof Boolean){
+            return o;
+        }
+        if(this.parent != null){
+            Object[] fullPath = Arrays.copyOf(this.basePath, this.basePath.length + parents.length);
+            System.arraycopy(parents, 0, fullPath, this.basePath.length, parents.length);
+            return this.parent.readOnly(fullPath, path, o);
+        }
+        if(this.isImmutable()){
+            return ReadOnlyTree.wrap(o);
+        }
+        if(this.owned == null || !(o instanceof Map) && !(o instanceof List)){
+            return o;
+        }
+        int size = this.owned.size();
+        Object node = this.own(this.map, null, null);
+        for (Object key : parents) {
+            node = this.own(child(node, key), node, key);
+        }
+        if(path != null){
+            // Same reading as ConfigurationPath.get, a key holding the whole path wins
+            boolean literal = !ConfigurationPath.isDotted(path) || ((Map<String, Object>) node).containsKey(path);
+            for (Object key : literal ? new Object[]{path} : ConfigurationPath.compile(path)) {
+                node = this.own(child(node, key), node, key);
+            }
+        }
+        this.ownAll(node);
+        if(this.owned.size() != size){
+            STRUCTURE_VERSION.incrementAndGet(this);
+        }
+        return node;
+    }
+
+    // Whatever is handed out can be edited at any depth, so its whole subtree is copied, once
+    private void ownAll(Object node){
+        if(this.owned.get(node) == Boolean.TRUE){
+            return;
+        }
+        if(node instanceof List){
+            List<Object> list = (List<Object>) node;
+            for (int i = 0; i < list.size(); i++) {
+                Object o = list.get(i);
+                if(o instanceof Map || o instanceof List){
+                    this.ownAll(this.own(o, node, i));
+                }
+            }
+        }else{
+            Map<String, Object> map = (Map<String, Object>) node;
+            for (String key : new ArrayList<>(map.keySet())) {
+                Object o = map.get(key);
+                if(o instanceof Map || o instanceof List){
+                    this.ownAll(this.own(o, node, key));
+                }
+            }
+        }
+        this.owned.put(node, Boolean.TRUE);
     }
 
     public <T> T getClassInstance(Class<T> clazz, String path){
-        String json = GSON.toJson(getSection(path).getAll());
-        return GSON.fromJson(json, clazz);
+        return ConfigurationBinder.bind(getSection(path).getAll(), clazz);
     }
 
     public <T> T getClassInstance(Class<T> clazz){
-        return GSON.fromJson(this.toJson(), clazz);
+        return ConfigurationBinder.bind(this.root(), clazz);
     }
 
     public void save(File file){
-        try{
-            if(!file.exists()){
-                file.createNewFile();
+        if(this.journal != null && file.equals(this.file)){
+            try{
+                this.compactJournal().join();
+            }catch (Exception e){
+                e.printStackTrace();
             }
-            FileOutputStream fileOutputStream = new FileOutputStream(file);
-            OutputStreamWriter fileWriter = new OutputStreamWriter(fileOutputStream, "UTF-8");
+            return;
+        }
+        try{
             if(this.json != null){
-                fileWriter.write(this.json);
+                ConfigurationSaver.writeAtomically(file, this.json);
             }else{
-                String json = GSON.toJson(this.map, this.MAP_TYPE);
-                fileWriter.write(json);
+                Map<String, Object> map = this.root();
+                ConfigCodec codec = this.codec;
+                ConfigurationSaver.writeAtomically(file, outputStream -> codec.write(map, outputStream));
+            }
+            if(file.equals(this.file)){
+                ConfigurationJournal.discard(file);
+                this.clearDirty();
             }
-            fileWriter.flush();
-            fileWriter.close();
-            fileOutputStream.close();
         }catch (Exception e){
             e.printStackTrace();
         }
     }
 
     public void save(){
+        if(this.parent != null){
+            this.parent.save();
+            return;
+        }
+        // Built from a String or a map, there is no file to save it to
+        if(this.file == null){
+            return;
+        }
+        if(this.journal != null){
+            try{
+                // Nothing recorded, the tree may still have been edited in place so it is written whole
+                (this.isDirty() ? this.saveJournal() : this.compactJournal()).join();
+            }catch (Exception e){
+                e.printStackTrace();
+            }
+            return;
+        }
         this.save(this.file);
     }
 
+    // For autosaves and shutdown flushes, skips configurations nothing was set in since they were loaded or saved.
+    // Maps and lists edited in place only count once markDirty() is called, save() writes them regardless.
+    public void saveIfDirty(){
+        if(this.parent != null){
+            this.parent.saveIfDirty();
+            return;
+        }
+        if(this.file != null && !this.isDirty() && this.file.exists()){
+            return;
+        }
+        this.save();
+    }
+
+    public CompletableFuture<Void> saveAsync(File file){
+        if(this.json != null){
+            String json = this.json;
+            return ConfigurationSaver.saveAsync(file, outputStream -> outputStream.write(json.getBytes(StandardCharsets.UTF_8)));
+        }
+        if(this.journal != null && file.equals(this.file)){
+            return this.compactJournal();
+        }
+        ConfigCodec codec = this.codec;
+        if(!file.equals(this.file)){
+            Map<String, Object> snapshot = this.saveCopy();
+            return ConfigurationSaver.saveAsync(file, outputStream -> codec.write(snapshot, outputStream));
+        }
+
+        // Taken together, a write landing between the copy and the reset would never be saved
+        Map<String, Object> snapshot;
+        Set<String> dirtySections;
+        Lock lock = this.lock().writeLock();
+        lock.lock();
+        try{
+            snapshot = this.saveCopy();
+            dirtySections = this.getDirtySections();
+            this.clearDirty();
+        }finally {
+            lock.unlock();
+        }
+        CompletableFuture<Void> future = ConfigurationSaver.saveAsync(file, outputStream -> codec.write(snapshot, outputStream));
+        future.whenComplete((v, throwable) -> {
+            if(throwable != null){
+                this.markDirty(dirtySections);
+            }else if(this.journal == null){
+                try{
+                    ConfigurationJournal.discard(file);
+                }catch (IOException e){
+                    LOGGER.warn("Unable to delete the journal of '"+file.getName()+"': "+e.getMessage());
+                }
+            }
+        });
+        return future;
+    }
+
+    public CompletableFuture<Void> saveAsync(){
+        if(this.parent != null){
+            return this.parent.saveAsync();
+        }
+        if(this.file == null){
+            return CompletableFuture.completedFuture(null);
+        }
+        if(this.journal != null){
+            return this.isDirty() ? this.saveJournal() : this.compactJournal();
+        }
+        return this.saveAsync(this.file);
+    }
+
+    public CompletableFuture<Void> saveAsyncIfDirty(){
+        if(this.parent != null){
+            return this.parent.saveAsyncIfDirty();
+        }
+        if(this.file != null && !this.isDirty() && this.file.exists()){
+            return CompletableFuture.completedFuture(null);
+        }
+        return this.saveAsync();
+    }
+
+    // Only the records written since the last save are appended, the base file is written again when it has to be
+    private CompletableFuture<Void> saveJournal(){
+        try{
+            if(this.journal.append()){
+                this.clearDirty();
+                if(this.journal.shouldCompact()){
+                    this.compactJournal();
+                }
+                return CompletableFuture.completedFuture(null);
+            }
+        }catch (IOException e){
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        return this.compactJournal();
+    }
+
+    // Folds the journal back into the base file in the background
+    public CompletableFuture<Void> compactJournal(){
+        if(this.parent != null){
+            return this.parent.compactJournal();
+        }
+        if(this.journal == null){
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Void> future;
+        Set<String> dirtySections;
+        Lock lock = this.lock().writeLock();
+        lock.lock();
+        try{
+            Map<String, Object> snapshot = this.saveCopy();
+            ConfigCodec codec = this.codec;
+            dirtySections = this.getDirtySections();
+            this.clearDirty();
+            try{
+                future = this.journal.compact(outputStream -> codec.write(snapshot, outputStream));
+            }catch (IOException e){
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+        }finally {
+            lock.unlock();
+        }
+        future.whenComplete((v, throwable) -> {
+            if(throwable != null){
+                this.markDirty(dirtySections);
+            }
+        });
+        return future;
+    }
+
+    public void watch() throws IOException {
+        ConfigurationWatcher.watch(this);
+    }
+
+    public void unwatch() {
+        ConfigurationWatcher.unwatch(this);
+    }
+
+    public synchronized boolean isDirty() {
+        return this.dirty;
+    }
+
+    public synchronized boolean isDirty(String section) {
+        return this.dirtySections != null && this.dirtySections.contains(section);
+    }
+
+    public synchronized Set<String> getDirtySections() {
+        return this.dirtySections == null ? new HashSet<>() : new HashSet<>(this.dirtySections);
+    }
+
+    public void markDirty(){
+        if(this.parent != null){
+            this.parent.markDirty();
+            this.parent.markDirty(String.valueOf(this.basePath[0]));
+            return;
+        }
+        // Edited in place by the caller, value handles and sections may still hold what was there before
+        STRUCTURE_VERSION.incrementAndGet(this);
+        VERSION.incrementAndGet(this);
+        synchronized (this){
+            this.dirty = true;
+            // Nothing says what changed, the journal can't describe it
+            if(this.journal != null){
+                this.journal.requireRewrite();
+            }
+        }
+    }
+
+    public void markDirty(String section){
+        if(this.parent != null){
+            this.parent.markDirty(String.valueOf(this.basePath[0]));
+            return;
+        }
+        // Already marked, the usual case for a configuration written to often, concurrent writers don't meet on the monitor
+        Set<String> dirtySections = this.dirtySections;
+        if(this.dirty && (section == null || dirtySections != null && dirtySections.contains(section))){
+            return;
+        }
+        synchronized (this){
+            this.dirty = true;
+            if(section != null){
+                if(this.dirtySections == null){
+                    this.dirtySections = ConcurrentHashMap.newKeySet();
+                }
+                this.dirtySections.add(section);
+            }
+        }
+    }
+
+    // Put back when a save failed
+    private synchronized void markDirty(Set<String> sections){
+        this.dirty = true;
+        if(!sections.isEmpty()){
+            if(this.dirtySections == null){
+                this.dirtySections = ConcurrentHashMap.newKeySet();
+            }
+            this.dirtySections.addAll(sections);
+        }
+    }
+
+    private synchronized void clearDirty(){
+        this.dirty = false;
+        this.dirtySections = null;
+    }
+
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    public void setConcurrent(boolean concurrent) {
+        if(this.parent != null){
+            this.parent.setConcurrent(concurrent);
+            return;
+        }
+        Lock lock = this.lock().writeLock();
+        lock.lock();
+        try{
+            if(this.concurrent == concurrent){
+                return;
+            }
+            if(this.map != null){
+                if(concurrent){
+                    this.map = new ConcurrentRoot(this.map);
+                    this.owned = null;
+                }else{
+                    this.map = ((ConcurrentRoot) this.map).snapshot();
+                    // Snapshots taken until now share the sections, they are copied before being written in place
+                    this.owned = new IdentityHashMap<>();
+                    this.owned.put(this.map, Boolean.FALSE);
+                }
+                STRUCTURE_VERSION.incrementAndGet(this);
+            }
+            this.concurrent = concurrent;
+        }finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isJournaled() {
+        return this.parent != null ? this.parent.isJournaled() : this.journal != null;
+    }
+
+    // Saves append the changes to <file>.journal instead of writing the whole file, for configurations written to often
+    public void setJournaled(boolean journaled) {
+        if(this.parent != null){
+            this.parent.setJournaled(journaled);
+            return;
+        }
+        if(!journaled){
+            if(this.journal != null){
+                this.journal.awaitCompaction();
+                this.journal = null;
+            }
+            return;
+        }
+        if(this.journal != null){
+            return;
+        }
+        if(this.file == null){
+            throw new IllegalStateException("Only a configuration saved to a file can be journaled");
+        }
+        ConfigurationJournal journal = new ConfigurationJournal(this.file);
+        if(this.isDirty()){
+            // Changes made before were not recorded
+            journal.requireRewrite();
+        }
+        this.journal = journal;
+    }
+
+    public ConfigCodec getCodec() {
+        return codec;
+    }
+
+    public void setCodec(ConfigCodec codec) {
+        this.codec = codec;
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    public static boolean isDefaultLazy() {
+        return defaultLazy;
+    }
+
+    public static void setDefaultLazy(boolean defaultLazy) {
+        Configuration.defaultLazy = defaultLazy;
+    }
+
+    public NumberMode getNumberMode() {
+        return numberMode;
+    }
+
+    public void setNumberMode(NumberMode numberMode) {
+        this.numberMode = numberMode;
+    }
+
+    public static NumberMode getDefaultNumberMode() {
+        return defaultNumberMode;
+    }
+
+    public static void setDefaultNumberMode(NumberMode defaultNumberMode) {
+        Configuration.defaultNumberMode = defaultNumberMode;
+    }
+
+    static int toInt(Object o){
+        return o instanceof Number ? ((Number) o).intValue() : (int) o;
+    }
+
+    static long toLong(Object o){
+        return o instanceof Number ? ((Number) o).longValue() : (long) o;
+    }
+
+    static double toDouble(Object o){
+        return o instanceof Number ? ((Number) o).doubleValue() : (double) o;
+    }
+
     public File getConfigFile() {
         return file;
     }
 
     public String toJson() {
-        return GSON.toJson(this.map, this.MAP_TYPE);
+        StringWriter writer = new StringWriter();
+        try{
+            this.toJson(writer);
+        }catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    public void toJson(Writer writer) throws IOException {
+        new ConfigurationTreeWriter(true).writeRoot(this.root(), writer);
     }
 
 
@@ -268,6 +1369,9 @@ public class Configuration {
 
         protected String initialPath;
         private ConfigurationSection section;
+        private Object[] pathKeys;
+        private ValueHandle.Cached resolved;
+        private volatile WeakValueCache<ConfigurationSection> sections;
 
         public ConfigurationSection(ConfigurationSection section, String initialPath) {
             this(initialPath);
@@ -279,56 +1383,73 @@ public class Configuration {
         }
 
         public <T> T get(String path){
-            if(this.section != null){
-                return (T) (((Map<String, Object>) section.get(initialPath)).get(path));
-            }
-            return (T) (((Map<String, Object>) map.get(initialPath)).get(path));
+            return (T) readOnly(this.getPathKeys(), path, ConfigurationPath.get(this.getBackingMap(), path));
         }
 
         public int getInt(String path){
-            if(this.section != null){
-                return (int) (double) ((Map<String, Object>) section.get(initialPath)).get(path);
-            }
-            return (int) (double) ((Map<String, Object>) map.get(initialPath)).get(path);
+            return toInt(this.get(path));
         }
 
         public long getLong(String path){
-            if(this.section != null){
-                return (long) (double) ((Map<String, Object>) section.get(initialPath)).get(path);
-            }
-            return (long) (double) ((Map<String, Object>) map.get(initialPath)).get(path);
+            return toLong(this.get(path));
+        }
+
+        public double getDouble(String path){
+            return toDouble(this.get(path));
         }
 
         public void set(String path, Object o){
-            if(this.section != null){
-                if(o == null){
-                    ((Map<String, Object>) section.get(initialPath)).remove(path);
-                }else{
-                    ((Map<String, Object>) section.get(initialPath)).put(path, o);
-                }
-            }else{
-                if(o == null){
-                    ((Map<String, Object>) map.get(initialPath)).remove(path);
-                }else{
-                    ((Map<String, Object>) map.get(initialPath)).put(path, o);
-                }
-            }
+            Configuration.this.set(this.getPathKeys(), path, o);
+        }
+
+        public void setLiteral(String key, Object o){
+            Configuration.this.write(this.getPathKeys(), key, o);
+        }
+
+        public ConfigValue.IntValue intValue(String path){
+            return new ConfigValue.IntValue(Configuration.this, this.getPathKeys(), path);
+        }
+
+        public ConfigValue.LongValue longValue(String path){
+            return new ConfigValue.LongValue(Configuration.this, this.getPathKeys(), path);
+        }
+
+        public ConfigValue.DoubleValue doubleValue(String path){
+            return new ConfigValue.DoubleValue(Configuration.this, this.getPathKeys(), path);
+        }
+
+        public ConfigValue.BooleanValue booleanValue(String path){
+            return new ConfigValue.BooleanValue(Configuration.this, this.getPathKeys(), path);
+        }
+
+        public <T> ConfigValue<T> value(String path, Class<T> type){
+            return new ConfigValue<>(Configuration.this, this.getPathKeys(), path, type);
+        }
+
+        public void subscribe(String path, ConfigurationListener listener){
+            Configuration.this.subscribe(this.getAbsolutePath(path), listener);
+        }
+
+        public void subscribePrefix(String path, ConfigurationListener listener){
+            Configuration.this.subscribePrefix(this.getAbsolutePath(path), listener);
+        }
+
+        public void unsubscribe(String path, ConfigurationListener listener){
+            Configuration.this.unsubscribe(this.getAbsolutePath(path), listener);
+        }
+
+        private String getAbsolutePath(String path){
+            String base = ConfigurationListeners.join(this.getPathKeys());
+            return base.isEmpty() ? path : path.isEmpty() ? base : base+"."+path;
         }
 
         public ConfigurationSection newSection(String path){
-            if(this.section != null){
-                ((Map<String, Object>) section.get(initialPath)).put(path, new HashMap<>());
-            }else{
-                ((Map<String, Object>) map.get(initialPath)).put(path, new HashMap<>());
-            }
-            return new ConfigurationSection(this, path);
+            Configuration.this.set(this.getPathKeys(), path, new HashMap<>());
+            return this.getSection(path);
         }
 
         public boolean contains(String path){
-            if(this.section != null){
-                return ((Map<String, Object>) section.get(initialPath)).containsKey(path);
-            }
-            return ((Map<String, Object>) map.get(initialPath)).containsKey(path);
+            return ConfigurationPath.contains(this.getBackingMap(), path);
         }
 
         public boolean getBoolean(String path){
@@ -336,39 +1457,95 @@ public class Configuration {
         }
 
         public ConfigurationSection getSection(String path){
-            return new ConfigurationSection(this, path);
+            Map<String, Object> map = this.getBackingMap();
+            if(ConfigurationPath.isDotted(path) && (map == null || !map.containsKey(path))){
+                ConfigurationSection section = this;
+                for (String segment : ConfigurationPath.compile(path)) {
+                    section = section.getSection(segment);
+                }
+                return section;
+            }
+            WeakValueCache<ConfigurationSection> sections = this.sections;
+            if(sections == null){
+                synchronized (this){
+                    if(this.sections == null){
+                        this.sections = new WeakValueCache<>();
+                    }
+                    sections = this.sections;
+                }
+            }
+            ConfigurationSection section = sections.get(path);
+            if(section == null){
+                section = sections.computeIfAbsent(path, key -> new ConfigurationSection(this, key));
+            }
+            return section;
         }
 
         public List<Configuration> getSectionList(String path){
-            List<Configuration> list = new ArrayList<>();
             Object sectionObj = this.get(path);
-            if(sectionObj instanceof ArrayList){
-                ((ArrayList<Map<String, Object>>) sectionObj).forEach(hashMap -> list.add(new Configuration(hashMap)));
-            }else{
+            if(!(sectionObj instanceof List)){
                 return null;
             }
+            int size = ((List<?>) sectionObj).size();
+            List<Configuration> list = new ArrayList<>(size);
+            Object[] pathKeys = this.getPathKeys();
+            // Same reading as get, a key holding the whole path wins over the dotted one
+            Map<String, Object> map = this.getBackingMap();
+            Object[] listPath = !ConfigurationPath.isDotted(path) || map.containsKey(path) ? new Object[]{path} : ConfigurationPath.compile(path);
+            for (int i = 0; i < size; i++) {
+                Object[] elementPath = Arrays.copyOf(pathKeys, pathKeys.length + listPath.length + 1);
+                System.arraycopy(listPath, 0, elementPath, pathKeys.length, listPath.length);
+                elementPath[elementPath.length - 1] = i;
+                list.add(new Configuration(Configuration.this, elementPath));
+            }
             return list;
         }
 
         public Map<String, Object> getAll(){
-            if(this.section != null){
-                return section.get(initialPath);
-            }
-            return ((Map<String, Object>) map.get(initialPath));
+            return (Map<String, Object>) readOnly(this.getPathKeys(), null, this.getBackingMap());
         }
 
         public <T> T getClassInstance(Class<T> clazz, String path){
-            String json = GSON.toJson(getAll(), MAP_TYPE);
-            return GSON.fromJson(json, clazz);
+            return ConfigurationBinder.bind(getAll(), clazz);
         }
 
         public String toJson(){
-            return GSON.toJson(this.getAll(), MAP_TYPE);
+            StringWriter writer = new StringWriter();
+            try{
+                this.toJson(writer);
+            }catch (IOException e){
+                throw new UncheckedIOException(e);
+            }
+            return writer.toString();
+        }
+
+        public void toJson(Writer writer) throws IOException {
+            new ConfigurationTreeWriter(true).writeRoot(this.getAll(), writer);
         }
 
         public String getInitialPath() {
             return initialPath;
         }
+
+        // Resolved once per structure version instead of walking the parents on every call
+        protected Map<String, Object> getBackingMap() {
+            long version = getStructureVersion();
+            ValueHandle.Cached resolved = this.resolved;
+            if(resolved == null || resolved.version != version){
+                this.resolved = resolved = new ValueHandle.Cached(version, resolve(this.getPathKeys()), 0);
+            }
+            return (Map<String, Object>) resolved.object;
+        }
+
+        protected Object[] getPathKeys() {
+            if(this.pathKeys == null){
+                Object[] parentKeys = this.section != null ? this.section.getPathKeys() : ROOT;
+                Object[] pathKeys = Arrays.copyOf(parentKeys, parentKeys.length + 1);
+                pathKeys[parentKeys.length] = this.initialPath;
+                this.pathKeys = pathKeys;
+            }
+            return this.pathKeys;
+        }
     }
 
     public class ConfigurationSectionMain extends ConfigurationSection {
@@ -395,11 +1572,21 @@ public class Configuration {
             return this.configuration.getLong(path);
         }
 
+        @Override
+        public double getDouble(String path) {
+            return this.configuration.getDouble(path);
+        }
+
         @Override
         public void set(String path, Object o) {
             this.configuration.set(path, o);
         }
 
+        @Override
+        public void setLiteral(String key, Object o) {
+            this.configuration.setLiteral(key, o);
+        }
+
         @Override
         public ConfigurationSection newSection(String path) {
             return this.configuration.newSection(path);
@@ -427,13 +1614,12 @@ public class Configuration {
 
         @Override
         public Map<String, Object> getAll() {
-            return this.configuration.map;
+            return (Map<String, Object>) this.configuration.readOnly(ROOT, null, this.configuration.root());
         }
 
         @Override
         public <T> T getClassInstance(Class<T> clazz, String path) {
-            String json = this.configuration.toJson();
-            return GSON.fromJson(json, clazz);
+            return ConfigurationBinder.bind(this.configuration.root(), clazz);
         }
 
         @Override
@@ -441,8 +1627,18 @@ public class Configuration {
             return this.configuration.toJson();
         }
 
+        @Override
+        public void toJson(Writer writer) throws IOException {
+            this.configuration.toJson(writer);
+        }
+
         public void setInitialPath(String newInitialPath){
             this.initialPath = newInitialPath;
         }
+
+        @Override
+        protected Object[] getPathKeys() {
+            return ROOT;
+        }
     }
 }
@@ -0,0 +1,67 @@
+package fr.naruse.api.config;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class ConfigurationBinder {
+
+    private static final Map<Class<?>, TypeAdapter<?>> ADAPTERS = new ConcurrentHashMap<>();
+
+    private ConfigurationBinder() {
+    }
+
+    public static <T> T bind(Object tree, Class<T> clazz) {
+        if(tree == null){
+            return null;
+        }
+        TypeAdapter<T> adapter = (TypeAdapter<T>) ADAPTERS.computeIfAbsent(clazz, Configuration.GSON::getAdapter);
+        MapTreeReader reader = new MapTreeReader(tree);
+        reader.setLenient(true);
+        try{
+            return adapter.read(reader);
+        }catch (IOException | IllegalStateException e){
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    public static Object toTree(Object src, NumberMode numberMode) {
+        if(src == null){
+            return null;
+        }
+        MapTreeWriter writer = new MapTreeWriter(numberMode);
+        Configuration.GSON.toJson(src, src.getClass(), writer);
+        return writer.get();
+    }
+
+    public static <T> T copyTree(T tree, NumberMode numberMode) {
+        if(tree == null || tree instanceof String || tree instanceof Boolean){
+            return tree;
+        }
+        if(tree instanceof Number){
+            return (T) numberMode.normalize((Number) tree);
+        }
+        if(tree instanceof Map){
+            Map<String, Object> map = (Map<String, Object>) tree;
+            Map<String, Object> copy = new CompactMap();
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                copy.put(entry.getKey(), copyTree(entry.getValue(), numberMode));
+            }
+            return (T) copy;
+        }
+        if(tree instanceof List){
+            List<Object> list = (List<Object>) tree;
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object o : list) {
+                copy.add(copyTree(o, numberMode));
+            }
+            return (T) copy;
+        }
+        return (T) toTree(tree, numberMode);
+    }
+}
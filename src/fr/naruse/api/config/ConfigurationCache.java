@@ -0,0 +1,143 @@
+package fr.naruse.api.config;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+public final class ConfigurationCache {
+
+    private static final int MAGIC = 0x4E434643;
+    private static final int VERSION = 1;
+
+    private static volatile boolean enabled;
+    private static volatile File directory;
+
+    private ConfigurationCache() {
+    }
+
+    // Cache files are written next to each configuration
+    public static void enable() {
+        enable(null);
+    }
+
+    public static void enable(File directory) {
+        ConfigurationCache.directory = directory;
+        ConfigurationCache.enabled = true;
+    }
+
+    public static void disable() {
+        ConfigurationCache.enabled = false;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    static Map<String, Object> load(File file, NumberMode numberMode) throws IOException {
+        byte[] content = Files.readAllBytes(file.toPath());
+        CRC32 crc = new CRC32();
+        crc.update(content);
+
+        String path = file.getAbsolutePath();
+        Key key = new Key(path, file.lastModified(), content.length, crc.getValue(), numberMode);
+        File cacheFile = getCacheFile(file);
+
+        if(cacheFile.exists()){
+            try(DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))){
+                if(key.equals(Key.read(inputStream))){
+                    Object tree = BinaryTreeFormat.read(inputStream, numberMode);
+                    if(tree instanceof Map){
+                        return (Map<String, Object>) tree;
+                    }
+                }
+            }catch (IOException e){
+                Configuration.LOGGER.warn("Ignoring unreadable cache of '"+file.getName()+"': "+e.getMessage());
+            }
+        }
+
+        Map<String, Object> map = new Utf8JsonReader(numberMode).readRoot(content);
+        if(map != null){
+            try{
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream(Math.max(content.length / 2, 64));
+                DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+                key.write(dataOutputStream);
+                BinaryTreeFormat.write(map, dataOutputStream);
+                ConfigurationSaver.writeAtomically(cacheFile, outputStream.toByteArray());
+            }catch (IOException e){
+                Configuration.LOGGER.warn("Unable to write the cache of '"+file.getName()+"': "+e.getMessage());
+            }
+        }
+        return map;
+    }
+
+    private static File getCacheFile(File file) {
+        File directory = ConfigurationCache.directory;
+        if(directory == null){
+            return new File(file.getAbsoluteFile().getParentFile(), "."+file.getName()+".bin");
+        }
+        String path = file.getAbsolutePath();
+        return new File(directory, file.getName()+"-"+Integer.toHexString(path.hashCode())+".bin");
+    }
+
+    private static class Key {
+
+        private final String path;
+        private final long lastModified;
+        private final long size;
+        private final long checksum;
+        private final NumberMode numberMode;
+
+        private Key(String path, long lastModified, long size, long checksum, NumberMode numberMode) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.checksum = checksum;
+            this.numberMode = numberMode;
+        }
+
+        private static Key read(DataInputStream inputStream) throws IOException {
+            if(inputStream.readInt() != MAGIC || inputStream.readUnsignedByte() != VERSION){
+                return null;
+            }
+            byte[] path = new byte[inputStream.readUnsignedShort()];
+            inputStream.readFully(path);
+            long lastModified = inputStream.readLong();
+            long size = inputStream.readLong();
+            long checksum = inputStream.readLong();
+            int numberMode = inputStream.readUnsignedByte();
+            if(numberMode >= NumberMode.values().length){
+                return null;
+            }
+            return new Key(new String(path, StandardCharsets.UTF_8), lastModified, size, checksum, NumberMode.values()[numberMode]);
+        }
+
+        private void write(DataOutputStream outputStream) throws IOException {
+            byte[] path = this.path.getBytes(StandardCharsets.UTF_8);
+            outputStream.writeInt(MAGIC);
+            outputStream.writeByte(VERSION);
+            outputStream.writeShort(path.length);
+            outputStream.write(path);
+            outputStream.writeLong(this.lastModified);
+            outputStream.writeLong(this.size);
+            outputStream.writeLong(this.checksum);
+            outputStream.writeByte(this.numberMode.ordinal());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Key)){
+                return false;
+            }
+            Key key = (Key) o;
+            return this.lastModified == key.lastModified && this.size == key.size && this.checksum == key.checksum
+                    && this.numberMode == key.numberMode && this.path.equals(key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.path.hashCode();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package fr.naruse.api.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+public final class ConfigurationDefaults {
+
+    private static final int MAX_RESOURCES_PER_LOADER = 256;
+    private static final Map<ClassLoader, Map<String, ConfigurationDefaults>> CACHE = new WeakHashMap<>();
+    private static final ConfigurationDefaults MISSING = new ConfigurationDefaults(new String[0], new Object[0], new ConfigurationDefaults[0]);
+
+    private final String[] keys;
+    private final Object[] values;
+    private final ConfigurationDefaults[] children;
+
+    private ConfigurationDefaults(String[] keys, Object[] values, ConfigurationDefaults[] children) {
+        this.keys = keys;
+        this.values = values;
+        this.children = children;
+    }
+
+    public static ConfigurationDefaults get(ClassLoader classLoader, String path) throws IOException {
+        synchronized (CACHE){
+            Map<String, ConfigurationDefaults> resources = CACHE.get(classLoader);
+            ConfigurationDefaults defaults = resources == null ? null : resources.get(path);
+            if(defaults != null){
+                return defaults == MISSING ? null : defaults;
+            }
+        }
+
+        ConfigurationDefaults defaults;
+        InputStream inputStream = classLoader.getResourceAsStream(path);
+        if(inputStream == null){
+            defaults = MISSING;
+        }else{
+            defaults = read(inputStream);
+            if(defaults == null){
+                defaults = MISSING;
+            }
+        }
+
+        synchronized (CACHE){
+            CACHE.computeIfAbsent(classLoader, loader -> new LinkedHashMap<String, ConfigurationDefaults>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ConfigurationDefaults> eldest) {
+                    return this.size() > MAX_RESOURCES_PER_LOADER;
+                }
+            }).put(path, defaults);
+        }
+        return defaults == MISSING ? null : defaults;
+    }
+
+    public static ConfigurationDefaults read(InputStream inputStream) throws IOException {
+        Map<String, Object> map;
+        try(Reader reader = Configuration.newReader(inputStream)){
+            // Numbers are kept exact here and converted to each configuration's mode when copied
+            map = new ConfigurationTreeReader(NumberMode.LAZY).readRoot(reader);
+        }
+        return map == null ? null : of(map);
+    }
+
+    public static void invalidate(ClassLoader classLoader) {
+        synchronized (CACHE){
+            CACHE.remove(classLoader);
+        }
+    }
+
+    public static void invalidateAll() {
+        synchronized (CACHE){
+            CACHE.clear();
+        }
+    }
+
+    private static ConfigurationDefaults of(Map<String, Object> map) {
+        String[] keys = new String[map.size()];
+        Object[] values = new Object[map.size()];
+        ConfigurationDefaults[] children = new ConfigurationDefaults[map.size()];
+
+        int i = 0;
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            keys[i] = entry.getKey();
+            values[i] = entry.getValue();
+            if(entry.getValue() instanceof Map){
+                children[i] = of((Map<String, Object>) entry.getValue());
+            }
+            i++;
+        }
+        return new ConfigurationDefaults(keys, values, children);
+    }
+
+    public boolean fill(Map<String, Object> map, NumberMode numberMode, Collection<String> changedKeys) {
+        boolean changed = false;
+        for (int i = 0; i < this.keys.length; i++) {
+            boolean keyChanged = false;
+            Object o = map.get(this.keys[i]);
+            if(o == null && !map.containsKey(this.keys[i])){
+                map.put(this.keys[i], ConfigurationBinder.copyTree(this.values[i], numberMode));
+                keyChanged = true;
+            }else if(this.children[i] != null && o instanceof Map){
+                keyChanged = this.children[i].fill((Map<String, Object>) o, numberMode, null);
+            }
+            if(keyChanged){
+                if(changedKeys != null){
+                    changedKeys.add(this.keys[i]);
+                }
+                changed = true;
+            }
+        }
+        return changed;
+    }
+}
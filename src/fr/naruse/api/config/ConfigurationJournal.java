@@ -0,0 +1,264 @@
+package fr.naruse.api.config;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.internal.bind.TypeAdapters;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Changes are appended to <file>.journal as one JSON line each, {"p":[path],"v":value} or {"p":[path]} for a removal.
+// Compaction moves the journal aside to <file>.journal.old, writes the whole tree to the base file, then drops it.
+final class ConfigurationJournal {
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(LazilyParsedNumber.class, TypeAdapters.NUMBER)
+            .create();
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final long MIN_COMPACTION_SIZE = 256 * 1024;
+
+    private final File file;
+    private final File journalFile;
+    private final File compactingFile;
+    private StringWriter pending = new StringWriter();
+    private boolean rewrite;
+    private int generation;
+    private CompletableFuture<Void> compaction;
+
+    ConfigurationJournal(File file) {
+        this.file = file;
+        this.journalFile = journalFile(file);
+        this.compactingFile = compactingFile(file);
+    }
+
+    static File journalFile(File file) {
+        return new File(file.getPath()+".journal");
+    }
+
+    static File compactingFile(File file) {
+        return new File(file.getPath()+".journal.old");
+    }
+
+    synchronized void record(Object[] path, Object value) {
+        if(this.rewrite){
+            return;
+        }
+        try{
+            JsonWriter writer = new JsonWriter(this.pending);
+            writer.beginObject().name("p").beginArray();
+            for (Object key : path) {
+                if(key instanceof Integer){
+                    writer.value((Integer) key);
+                }else{
+                    writer.value(String.valueOf(key));
+                }
+            }
+            writer.endArray();
+            if(value != null){
+                writer.name("v");
+                GSON.toJson(value, Object.class, writer);
+            }
+            writer.endObject();
+            writer.flush();
+            this.pending.write('\n');
+        }catch (IOException | RuntimeException e){
+            // Can't be expressed as a record, the next save writes the whole tree instead
+            this.requireRewrite();
+        }
+    }
+
+    // Changes that aren't recorded, like replacing the whole tree, are only saved by writing the base file again
+    synchronized void requireRewrite() {
+        this.rewrite = true;
+        this.pending = new StringWriter();
+    }
+
+    synchronized void reset() {
+        this.rewrite = false;
+        this.pending = new StringWriter();
+    }
+
+    // False when the records can't describe the changes and the base file has to be written instead
+    synchronized boolean append() throws IOException {
+        if(this.rewrite){
+            return false;
+        }
+        if(this.pending.getBuffer().length() == 0){
+            return true;
+        }
+        // Starts on a new line so a record torn by a crash can't swallow the ones after it
+        byte[] bytes = ("\n"+this.pending).getBytes(StandardCharsets.UTF_8);
+        try(FileChannel channel = FileChannel.open(this.journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)){
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if(ConfigurationSaver.isForceSyncWrites()){
+                channel.force(false);
+            }
+        }
+        this.pending = new StringWriter();
+        return true;
+    }
+
+    synchronized boolean shouldCompact() {
+        return (this.compaction == null || this.compaction.isDone())
+                && this.journalFile.length() > Math.max(this.file.length(), MIN_COMPACTION_SIZE);
+    }
+
+    // The snapshot holds every change made so far, so the pending records and the journal both become obsolete
+    synchronized CompletableFuture<Void> compact(ConfigurationSaver.Content snapshot) throws IOException {
+        this.reset();
+        if(this.journalFile.exists()){
+            if(this.compactingFile.exists()){
+                // Left by a compaction still running or one that failed, it is only dropped once a newer base is written
+                Files.write(this.compactingFile.toPath(), Files.readAllBytes(this.journalFile.toPath()), StandardOpenOption.APPEND);
+                Files.delete(this.journalFile.toPath());
+            }else{
+                Files.move(this.journalFile.toPath(), this.compactingFile.toPath());
+            }
+        }
+
+        int generation = ++this.generation;
+        CompletableFuture<Void> future = ConfigurationSaver.saveAsync(this.file, snapshot);
+        this.compaction = future.whenComplete((v, throwable) -> {
+            synchronized (this){
+                if(generation != this.generation){
+                    return;
+                }
+                if(throwable != null){
+                    this.requireRewrite();
+                    return;
+                }
+                try{
+                    Files.deleteIfExists(this.compactingFile.toPath());
+                }catch (IOException e){
+                    Configuration.LOGGER.warn("Unable to delete '"+this.compactingFile.getName()+"': "+e.getMessage());
+                }
+            }
+        });
+        return this.compaction;
+    }
+
+    void awaitCompaction() {
+        CompletableFuture<Void> compaction;
+        synchronized (this){
+            compaction = this.compaction;
+        }
+        if(compaction != null){
+            try{
+                compaction.join();
+            }catch (RuntimeException ignored){
+            }
+        }
+    }
+
+    static boolean exists(File file) {
+        return journalFile(file).exists() || compactingFile(file).exists();
+    }
+
+    // Once the base file holds the whole tree, the records left would only replay older values over it
+    static void discard(File file) throws IOException {
+        Files.deleteIfExists(compactingFile(file).toPath());
+        Files.deleteIfExists(journalFile(file).toPath());
+    }
+
+    static void replay(File file, Map<String, Object> map, NumberMode numberMode) throws IOException {
+        replayFile(compactingFile(file), map, numberMode);
+        replayFile(journalFile(file), map, numberMode);
+    }
+
+    private static void replayFile(File journal, Map<String, Object> map, NumberMode numberMode) throws IOException {
+        if(!journal.exists()){
+            return;
+        }
+        ConfigurationTreeReader treeReader = new ConfigurationTreeReader(numberMode);
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journal), StandardCharsets.UTF_8), BUFFER_SIZE)){
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if(line.isEmpty()){
+                    continue;
+                }
+                Map<String, Object> record;
+                try{
+                    record = treeReader.readRoot(new StringReader(line));
+                }catch (IOException | JsonParseException e){
+                    Configuration.LOGGER.warn("Skipping a torn record of '"+journal.getName()+"'");
+                    continue;
+                }
+                if(record != null && record.get("p") instanceof List){
+                    apply(map, (List<Object>) record.get("p"), record.get("v"));
+                }
+            }
+        }
+    }
+
+    private static void apply(Map<String, Object> map, List<Object> path, Object value) {
+        if(path.isEmpty()){
+            return;
+        }
+        Object node = map;
+        for (int i = 0; i < path.size() - 1; i++) {
+            Object key = key(path.get(i));
+            Object child = child(node, key);
+            if(!(child instanceof Map) && !(child instanceof List)){
+                if(value == null){
+                    return;
+                }
+                child = new CompactMap();
+                if(!put(node, key, child)){
+                    return;
+                }
+            }
+            node = child;
+        }
+        put(node, key(path.get(path.size() - 1)), value);
+    }
+
+    private static Object key(Object key) {
+        return key instanceof Number ? (Object) ((Number) key).intValue() : key;
+    }
+
+    private static Object child(Object node, Object key) {
+        if(node instanceof List){
+            List<Object> list = (List<Object>) node;
+            return key instanceof Integer && (Integer) key < list.size() ? list.get((Integer) key) : null;
+        }
+        return ((Map<String, Object>) node).get(String.valueOf(key));
+    }
+
+    private static boolean put(Object node, Object key, Object value) {
+        if(node instanceof List){
+            List<Object> list = (List<Object>) node;
+            if(!(key instanceof Integer) || (Integer) key > list.size()){
+                return false;
+            }
+            if((Integer) key == list.size()){
+                list.add(value);
+            }else{
+                list.set((Integer) key, value);
+            }
+        }else if(value == null){
+            ((Map<String, Object>) node).remove(String.valueOf(key));
+        }else{
+            ((Map<String, Object>) node).put(String.valueOf(key), value);
+        }
+        return true;
+    }
+}
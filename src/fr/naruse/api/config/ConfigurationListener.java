@@ -0,0 +1,8 @@
+package fr.naruse.api.config;
+
+public interface ConfigurationListener {
+
+    // Removed values are null on the new side, added values on the old side
+    void onChange(String path, Object oldValue, Object newValue);
+
+}
@@ -0,0 +1,182 @@
+package fr.naruse.api.config;
+
+import com.google.gson.internal.LazilyParsedNumber;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Trie of subscriptions by path segment, a diff only walks the branches someone listens to
+final class ConfigurationListeners {
+
+    private final Node root = new Node();
+    private volatile boolean empty = true;
+
+    boolean isEmpty() {
+        return this.empty;
+    }
+
+    void subscribe(String path, ConfigurationListener listener, boolean prefix) {
+        Node node = this.root;
+        if(!path.isEmpty()){
+            for (String segment : ConfigurationPath.compile(path)) {
+                node = node.children.computeIfAbsent(segment, key -> new Node());
+            }
+        }
+        (prefix ? node.prefixListeners : node.listeners).add(listener);
+        this.empty = false;
+    }
+
+    void unsubscribe(String path, ConfigurationListener listener) {
+        Node node = this.root;
+        if(!path.isEmpty()){
+            for (String segment : ConfigurationPath.compile(path)) {
+                node = node.children.get(segment);
+                if(node == null){
+                    return;
+                }
+            }
+        }
+        node.listeners.remove(listener);
+        node.prefixListeners.remove(listener);
+    }
+
+    // Dispatches a change of the value at path, ancestors hear about it with the values of that path
+    void changed(Object[] path, Object oldValue, Object newValue) {
+        if(unchanged(oldValue, newValue)){
+            return;
+        }
+        String fullPath = join(path);
+        boolean changed = !same(oldValue, newValue);
+        Node node = this.root;
+        for (Object key : path) {
+            if(changed){
+                fire(node.listeners, fullPath, oldValue, newValue);
+            }
+            if(!node.prefixListeners.isEmpty()){
+                diff(node.prefixListeners, fullPath, oldValue, newValue);
+            }
+            node = node.children.get(String.valueOf(key));
+            if(node == null){
+                return;
+            }
+        }
+        this.walk(node, fullPath, oldValue, newValue);
+    }
+
+    private void walk(Node node, String path, Object oldValue, Object newValue) {
+        if(unchanged(oldValue, newValue)){
+            return;
+        }
+        if(!node.listeners.isEmpty() && !same(oldValue, newValue)){
+            fire(node.listeners, path, oldValue, newValue);
+        }
+        if(!node.prefixListeners.isEmpty()){
+            diff(node.prefixListeners, path, oldValue, newValue);
+        }
+        for (Map.Entry<String, Node> entry : node.children.entrySet()) {
+            String key = entry.getKey();
+            this.walk(entry.getValue(), path.isEmpty() ? key : path+"."+key, child(oldValue, key), child(newValue, key));
+        }
+    }
+
+    // Reports every leaf that differs, sections are compared key by key and anything else as a whole
+    private static void diff(List<ConfigurationListener> listeners, String path, Object oldValue, Object newValue) {
+        if(unchanged(oldValue, newValue)){
+            return;
+        }
+        // A section that appears or goes away is reported as its leaves being added or removed
+        if((oldValue instanceof Map || oldValue == null) && (newValue instanceof Map || newValue == null)){
+            Map<String, Object> oldMap = oldValue == null ? Collections.emptyMap() : (Map<String, Object>) oldValue;
+            Map<String, Object> newMap = newValue == null ? Collections.emptyMap() : (Map<String, Object>) newValue;
+            Set<String> keys = new LinkedHashSet<>(oldMap.keySet());
+            keys.addAll(newMap.keySet());
+            for (String key : keys) {
+                diff(listeners, path.isEmpty() ? key : path+"."+key, oldMap.get(key), newMap.get(key));
+            }
+        }else if(!same(oldValue, newValue)){
+            fire(listeners, path, oldValue, newValue);
+        }
+    }
+
+    // A map or list set back may have been edited in place, what it held before is gone so it is walked as changed
+    private static boolean unchanged(Object oldValue, Object newValue) {
+        return oldValue == newValue && !(oldValue instanceof Map) && !(oldValue instanceof List);
+    }
+
+    // Written numbers keep their boxed type while loaded ones are parsed, 5 and 5.0 are the same value
+    private static boolean same(Object oldValue, Object newValue) {
+        if(oldValue == newValue){
+            return unchanged(oldValue, newValue);
+        }
+        if(oldValue instanceof Number && newValue instanceof Number){
+            // Doubles can't tell longs apart past 2^53
+            if(isIntegral(oldValue) && isIntegral(newValue)){
+                return ((Number) oldValue).longValue() == ((Number) newValue).longValue();
+            }
+            return ((Number) oldValue).doubleValue() == ((Number) newValue).doubleValue();
+        }
+        return Objects.equals(oldValue, newValue);
+    }
+
+    private static boolean isIntegral(Object o) {
+        if(o instanceof Long || o instanceof Integer || o instanceof Short || o instanceof Byte){
+            return true;
+        }
+        if(o instanceof LazilyParsedNumber){
+            String text = o.toString();
+            return text.indexOf('.') == -1 && text.indexOf('e') == -1 && text.indexOf('E') == -1;
+        }
+        return false;
+    }
+
+    private static void fire(List<ConfigurationListener> listeners, String path, Object oldValue, Object newValue) {
+        for (ConfigurationListener listener : listeners) {
+            try{
+                listener.onChange(path, oldValue, newValue);
+            }catch (RuntimeException e){
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static Object child(Object node, String key) {
+        if(node instanceof Map){
+            return ((Map<String, Object>) node).get(key);
+        }
+        if(node instanceof List){
+            try{
+                int index = Integer.parseInt(key);
+                List<Object> list = (List<Object>) node;
+                return index >= 0 && index < list.size() ? list.get(index) : null;
+            }catch (NumberFormatException e){
+                return null;
+            }
+        }
+        return null;
+    }
+
+    static String join(Object[] path) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < path.length; i++) {
+            if(i > 0){
+                builder.append('.');
+            }
+            builder.append(path[i]);
+        }
+        return builder.toString();
+    }
+
+    private static class Node {
+
+        private final Map<String, Node> children = new ConcurrentHashMap<>();
+        private final List<ConfigurationListener> listeners = new CopyOnWriteArrayList<>();
+        private final List<ConfigurationListener> prefixListeners = new CopyOnWriteArrayList<>();
+
+    }
+}
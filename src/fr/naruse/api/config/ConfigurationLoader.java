@@ -0,0 +1,168 @@
+package fr.naruse.api.config;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConfigurationLoader {
+
+    // Skips the cache, temporary and journal files written next to configurations
+    private static final FileFilter DEFAULT_FILTER = file -> file.isFile() && !file.getName().startsWith(".")
+            && !file.getName().endsWith(".journal") && !file.getName().endsWith(".journal.old");
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private Executor executor;
+    private FileFilter filter = DEFAULT_FILTER;
+    private ConfigCodec codec = ConfigCodec.JSON;
+    private boolean loadDefaultResource = true;
+
+    public Result load(File directory) throws IOException {
+        File[] files = directory.listFiles(this.filter);
+        if(files == null){
+            throw new IOException("'"+directory.getPath()+"' is not a directory");
+        }
+        Arrays.sort(files);
+        return this.load(Arrays.asList(files));
+    }
+
+    public Result load(Collection<File> files) {
+        File[] array = files.toArray(new File[0]);
+        Configuration[] configurations = new Configuration[array.length];
+        Exception[] failures = new Exception[array.length];
+        long[] loadNanos = new long[array.length];
+
+        long start = System.nanoTime();
+        Executor executor = this.executor;
+        ForkJoinPool pool = null;
+        if(executor == null){
+            executor = pool = new ForkJoinPool(this.parallelism);
+        }
+        try{
+            // A fixed number of workers pull the files so any executor is bounded by the parallelism
+            AtomicInteger next = new AtomicInteger();
+            CompletableFuture<?>[] workers = new CompletableFuture[Math.min(this.parallelism, array.length)];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = CompletableFuture.runAsync(() -> {
+                    int index;
+                    while ((index = next.getAndIncrement()) < array.length) {
+                        long fileStart = System.nanoTime();
+                        Configuration configuration = new Configuration(array[index], this.codec, array[index].getName(), this.loadDefaultResource);
+                        try{
+                            configuration.reload();
+                            configurations[index] = configuration;
+                        }catch (IOException | RuntimeException e){
+                            failures[index] = e;
+                        }
+                        loadNanos[index] = System.nanoTime() - fileStart;
+                    }
+                }, executor);
+            }
+            CompletableFuture.allOf(workers).join();
+        }finally {
+            if(pool != null){
+                pool.shutdown();
+            }
+        }
+
+        Result result = new Result(array, configurations, failures, loadNanos, System.nanoTime() - start);
+        for (Map.Entry<File, Exception> entry : result.failures.entrySet()) {
+            Configuration.LOGGER.error("Unable to load '"+entry.getKey().getName()+"': "+entry.getValue().getMessage());
+        }
+        Configuration.LOGGER.info(result.configurations.size()+" configurations loaded in "+result.getElapsedMillis()+"ms");
+        return result;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public ConfigurationLoader setParallelism(int parallelism) {
+        if(parallelism < 1){
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    // A ForkJoinPool sized by the parallelism is used for each load when no executor is set
+    public ConfigurationLoader setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    public ConfigurationLoader setFilter(FileFilter filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    public ConfigurationLoader setCodec(ConfigCodec codec) {
+        this.codec = codec;
+        return this;
+    }
+
+    public ConfigurationLoader setLoadDefaultResource(boolean loadDefaultResource) {
+        this.loadDefaultResource = loadDefaultResource;
+        return this;
+    }
+
+    public static class Result {
+
+        private final Map<File, Configuration> configurations = new LinkedHashMap<>();
+        private final Map<File, Exception> failures = new LinkedHashMap<>();
+        private final Map<File, Long> loadNanos = new LinkedHashMap<>();
+        private final long elapsedNanos;
+        private long totalLoadNanos;
+
+        private Result(File[] files, Configuration[] configurations, Exception[] failures, long[] loadNanos, long elapsedNanos) {
+            for (int i = 0; i < files.length; i++) {
+                if(configurations[i] != null){
+                    this.configurations.put(files[i], configurations[i]);
+                }else{
+                    this.failures.put(files[i], failures[i]);
+                }
+                this.loadNanos.put(files[i], loadNanos[i]);
+                this.totalLoadNanos += loadNanos[i];
+            }
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Map<File, Configuration> getConfigurations() {
+            return Collections.unmodifiableMap(configurations);
+        }
+
+        public Configuration getConfiguration(File file) {
+            return configurations.get(file);
+        }
+
+        public Map<File, Exception> getFailures() {
+            return Collections.unmodifiableMap(failures);
+        }
+
+        public boolean hasFailures() {
+            return !failures.isEmpty();
+        }
+
+        public long getLoadMillis(File file) {
+            Long nanos = loadNanos.get(file);
+            return nanos == null ? 0 : nanos / 1_000_000;
+        }
+
+        // Time spent loading summed over every file, compare it with the elapsed time to see what the parallelism gives
+        public long getTotalLoadMillis() {
+            return totalLoadNanos / 1_000_000;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+    }
+}
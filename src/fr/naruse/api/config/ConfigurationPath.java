@@ -0,0 +1,76 @@
+package fr.naruse.api.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Dotted paths are split once and kept, so looking the same path up again doesn't allocate
+final class ConfigurationPath {
+
+    private static final int MAX_SIZE = 4096;
+    private static final Map<String, String[]> CACHE = new ConcurrentHashMap<>();
+
+    private ConfigurationPath() {
+    }
+
+    static boolean isDotted(String path) {
+        return path.indexOf('.') != -1;
+    }
+
+    static String[] compile(String path) {
+        String[] segments = CACHE.get(path);
+        if(segments != null){
+            return segments;
+        }
+
+        List<String> list = new ArrayList<>();
+        int start = 0;
+        int index;
+        while ((index = path.indexOf('.', start)) != -1) {
+            list.add(StringInterner.name(path.substring(start, index)));
+            start = index + 1;
+        }
+        list.add(StringInterner.name(path.substring(start)));
+        segments = list.toArray(new String[0]);
+
+        // Paths built on the fly could grow it forever, starting over keeps it bounded
+        if(CACHE.size() >= MAX_SIZE){
+            CACHE.clear();
+        }
+        CACHE.put(path, segments);
+        return segments;
+    }
+
+    // A key holding the whole path wins over the dotted reading so existing keys with dots keep working
+    static Object get(Map<String, Object> map, String path) {
+        Object o = map.get(path);
+        if(o != null || !isDotted(path) || map.containsKey(path)){
+            return o;
+        }
+        Object node = map;
+        for (String segment : compile(path)) {
+            if(!(node instanceof Map)){
+                return null;
+            }
+            node = ((Map<String, Object>) node).get(segment);
+        }
+        return node;
+    }
+
+    static boolean contains(Map<String, Object> map, String path) {
+        boolean literal = map.containsKey(path);
+        if(literal || !isDotted(path)){
+            return literal;
+        }
+        String[] segments = compile(path);
+        Object node = map;
+        for (int i = 0; i < segments.length - 1; i++) {
+            node = ((Map<String, Object>) node).get(segments[i]);
+            if(!(node instanceof Map)){
+                return false;
+            }
+        }
+        return ((Map<String, Object>) node).containsKey(segments[segments.length - 1]);
+    }
+}
@@ -0,0 +1,152 @@
+package fr.naruse.api.config;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+public final class ConfigurationSaver {
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Configuration-IO");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Map<File, PendingSave> PENDING = new HashMap<>();
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static volatile boolean forceSyncWrites;
+
+    private ConfigurationSaver() {
+    }
+
+    public static CompletableFuture<Void> saveAsync(File file, Content snapshot){
+        File key = file.getAbsoluteFile();
+        synchronized (PENDING){
+            PendingSave pending = PENDING.get(key);
+            if(pending != null){
+                pending.snapshot = snapshot;
+                return pending.future;
+            }
+            PendingSave newPending = new PendingSave(snapshot);
+            PENDING.put(key, newPending);
+            EXECUTOR.execute(() -> run(key, newPending));
+            return newPending.future;
+        }
+    }
+
+    public static void flush(){
+        CompletableFuture.runAsync(() -> {}, EXECUTOR).join();
+    }
+
+    public static void writeAtomically(File file, String content) throws IOException {
+        writeAtomically(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static void writeAtomically(File file, byte[] content) throws IOException {
+        writeAtomically(file, outputStream -> outputStream.write(content));
+    }
+
+    public static void writeAtomically(File file, Content content) throws IOException {
+        writeAtomically(file, content, forceSyncWrites);
+    }
+
+    private static void writeAtomically(File file, Content content, boolean force) throws IOException {
+        Path target = file.toPath().toAbsolutePath();
+        Path directory = target.getParent();
+        Files.createDirectories(directory);
+
+        Path temp = createTemp(directory, target);
+        try{
+            try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+                OutputStream outputStream = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+                content.writeTo(outputStream);
+                outputStream.flush();
+                if(force){
+                    channel.force(true);
+                }
+            }
+            try{
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }catch (AtomicMoveNotSupportedException e){
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            ConfigurationWatcher.refresh(file);
+        }finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Files.createTempFile makes it owner-only, and the move would carry that over to the target
+    private static Path createTemp(Path directory, Path target) throws IOException {
+        while (true) {
+            Path temp = directory.resolve("."+target.getFileName()+"."+Long.toHexString(ThreadLocalRandom.current().nextLong())+".tmp");
+            try{
+                Files.createFile(temp);
+            }catch (FileAlreadyExistsException e){
+                continue;
+            }
+            PosixFileAttributeView view = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+            if(view != null && Files.exists(target)){
+                Files.setPosixFilePermissions(temp, view.readAttributes().permissions());
+            }
+            return temp;
+        }
+    }
+
+    // Off by default, an fsync on the caller's thread is what made saves from the main thread stall.
+    // Saves going through saveAsync are always synced, they don't block anyone.
+    public static void setForceSyncWrites(boolean forceSyncWrites) {
+        ConfigurationSaver.forceSyncWrites = forceSyncWrites;
+    }
+
+    public static boolean isForceSyncWrites() {
+        return forceSyncWrites;
+    }
+
+    private static void run(File file, PendingSave pending){
+        Content snapshot;
+        synchronized (PENDING){
+            PENDING.remove(file);
+            snapshot = pending.snapshot;
+        }
+        try{
+            writeAtomically(file, snapshot, true);
+            pending.future.complete(null);
+        }catch (Throwable e){
+            Configuration.LOGGER.error("Unable to save '"+file.getName()+"': "+e.getMessage());
+            pending.future.completeExceptionally(e);
+        }
+    }
+
+    public interface Content {
+
+        void writeTo(OutputStream outputStream) throws IOException;
+
+    }
+
+    private static class PendingSave {
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private Content snapshot;
+
+        public PendingSave(Content snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package fr.naruse.api.config;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ConfigurationTreeReader {
+
+    private final NumberMode numberMode;
+
+    public ConfigurationTreeReader(NumberMode numberMode) {
+        this.numberMode = numberMode;
+    }
+
+    public Map<String, Object> readRoot(Reader reader) throws IOException {
+        JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.setLenient(true);
+
+        JsonToken token;
+        try{
+            token = jsonReader.peek();
+        }catch (EOFException e){
+            return null;
+        }
+        if(token == JsonToken.NULL){
+            return null;
+        }
+        if(token != JsonToken.BEGIN_OBJECT){
+            throw new JsonSyntaxException("Expected a JSON object but was "+token+" at path "+jsonReader.getPath());
+        }
+
+        Map<String, Object> map = this.readObject(jsonReader);
+        if(jsonReader.peek() != JsonToken.END_DOCUMENT){
+            throw new JsonSyntaxException("JSON document was not fully consumed.");
+        }
+        return map;
+    }
+
+    public Object read(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case BEGIN_ARRAY:
+                List<Object> list = new ArrayList<>();
+                in.beginArray();
+                while (in.hasNext()) {
+                    list.add(this.read(in));
+                }
+                in.endArray();
+                return list;
+            case BEGIN_OBJECT:
+                return this.readObject(in);
+            case STRING:
+                return StringInterner.value(in.nextString());
+            case NUMBER:
+                return this.readNumber(in);
+            case BOOLEAN:
+                return in.nextBoolean();
+            case NULL:
+                in.nextNull();
+                return null;
+            default:
+                throw new IllegalStateException("Unexpected token "+in.peek()+" at path "+in.getPath());
+        }
+    }
+
+    private Map<String, Object> readObject(JsonReader in) throws IOException {
+        Map<String, Object> map = new CompactMap();
+        in.beginObject();
+        while (in.hasNext()) {
+            map.put(StringInterner.name(in.nextName()), this.read(in));
+        }
+        in.endObject();
+        return map;
+    }
+
+    private Object readNumber(JsonReader in) throws IOException {
+        switch (this.numberMode) {
+            case LONG_OR_DOUBLE:
+                try{
+                    return in.nextLong();
+                }catch (NumberFormatException e){
+                    // The reader keeps the buffered number when it doesn't fit in a long
+                    return in.nextDouble();
+                }
+            case LAZY:
+                return new LazilyParsedNumber(in.nextString());
+            default:
+                return in.nextDouble();
+        }
+    }
+}
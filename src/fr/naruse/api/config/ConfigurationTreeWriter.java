@@ -0,0 +1,58 @@
+package fr.naruse.api.config;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+// Writes a tree token by token, only values that aren't part of a parsed tree go through the Gson adapters.
+// The output is the same as Configuration.GSON gives for the same tree.
+public class ConfigurationTreeWriter {
+
+    private final boolean pretty;
+
+    public ConfigurationTreeWriter(boolean pretty) {
+        this.pretty = pretty;
+    }
+
+    public void writeRoot(Map<String, Object> map, Writer writer) throws IOException {
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        jsonWriter.setHtmlSafe(true);
+        jsonWriter.setSerializeNulls(false);
+        if(this.pretty){
+            jsonWriter.setIndent("  ");
+        }
+        this.write(jsonWriter, map);
+        jsonWriter.flush();
+    }
+
+    public void write(JsonWriter out, Object o) throws IOException {
+        if(o == null){
+            out.nullValue();
+        }else if(o instanceof String){
+            out.value((String) o);
+        }else if(o instanceof Map){
+            out.beginObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) o).entrySet()) {
+                out.name(String.valueOf(entry.getKey()));
+                this.write(out, entry.getValue());
+            }
+            out.endObject();
+        }else if(o instanceof List){
+            List<?> list = (List<?>) o;
+            out.beginArray();
+            for (int i = 0; i < list.size(); i++) {
+                this.write(out, list.get(i));
+            }
+            out.endArray();
+        }else if(o instanceof Double || o instanceof Long || o instanceof Integer){
+            out.value((Number) o);
+        }else if(o instanceof Boolean){
+            out.value((Boolean) o);
+        }else{
+            Configuration.GSON.toJson(o, o.getClass(), out);
+        }
+    }
+}
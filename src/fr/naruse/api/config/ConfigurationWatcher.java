@@ -0,0 +1,280 @@
+package fr.naruse.api.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+public final class ConfigurationWatcher {
+
+    private static final Map<Path, WatchedFile> WATCHED_FILES = new ConcurrentHashMap<>();
+    private static final Map<Path, WatchKey> WATCHED_DIRECTORIES = new HashMap<>();
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final Map<Path, Long> PENDING = new HashMap<>();
+
+    private static volatile long debounceMillis = 250;
+    private static volatile Executor reloadExecutor = Runnable::run;
+    private static WatchService watchService;
+    private static Thread thread;
+
+    private ConfigurationWatcher() {
+    }
+
+    public static synchronized void watch(Configuration configuration) throws IOException {
+        if(configuration.getConfigFile() == null){
+            return;
+        }
+        Path file = configuration.getConfigFile().toPath().toAbsolutePath().normalize();
+        Path directory = file.getParent();
+
+        if(watchService == null){
+            watchService = FileSystems.getDefault().newWatchService();
+            thread = new Thread(ConfigurationWatcher::run, "Configuration-Watcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        if(!WATCHED_DIRECTORIES.containsKey(directory)){
+            WATCHED_DIRECTORIES.put(directory, directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY));
+        }
+
+        WatchedFile watchedFile = WATCHED_FILES.computeIfAbsent(file, WatchedFile::new);
+        watchedFile.configurations.addIfAbsent(configuration);
+        watchedFile.fingerprint = Fingerprint.of(file, null);
+    }
+
+    public static synchronized void unwatch(Configuration configuration) {
+        if(configuration.getConfigFile() == null){
+            return;
+        }
+        Path file = configuration.getConfigFile().toPath().toAbsolutePath().normalize();
+        WatchedFile watchedFile = WATCHED_FILES.get(file);
+        if(watchedFile == null){
+            return;
+        }
+        watchedFile.configurations.remove(configuration);
+        if(!watchedFile.configurations.isEmpty()){
+            return;
+        }
+        WATCHED_FILES.remove(file);
+
+        Path directory = file.getParent();
+        for (Path path : WATCHED_FILES.keySet()) {
+            if(path.getParent().equals(directory)){
+                return;
+            }
+        }
+        WatchKey key = WATCHED_DIRECTORIES.remove(directory);
+        if(key != null){
+            key.cancel();
+        }
+    }
+
+    public static boolean isWatched(Configuration configuration) {
+        if(configuration.getConfigFile() == null){
+            return false;
+        }
+        WatchedFile watchedFile = WATCHED_FILES.get(configuration.getConfigFile().toPath().toAbsolutePath().normalize());
+        return watchedFile != null && watchedFile.configurations.contains(configuration);
+    }
+
+    public static void addListener(Listener listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    public static void setDebounceMillis(long debounceMillis) {
+        ConfigurationWatcher.debounceMillis = debounceMillis;
+    }
+
+    public static void setReloadExecutor(Executor reloadExecutor) {
+        ConfigurationWatcher.reloadExecutor = reloadExecutor;
+    }
+
+    static void refresh(File file) {
+        if(WATCHED_FILES.isEmpty()){
+            return;
+        }
+        WatchedFile watchedFile = WATCHED_FILES.get(file.toPath().toAbsolutePath().normalize());
+        if(watchedFile != null){
+            watchedFile.fingerprint = Fingerprint.of(watchedFile.path, null);
+        }
+    }
+
+    private static void run() {
+        while (true){
+            WatchKey key;
+            try{
+                long next = nextDeadline();
+                key = next == Long.MAX_VALUE ? watchService.take() : watchService.poll(Math.max(next - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+            }catch (InterruptedException | ClosedWatchServiceException e){
+                return;
+            }
+
+            if(key != null){
+                Path directory = (Path) key.watchable();
+                long deadline = System.currentTimeMillis() + debounceMillis;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if(event.kind() == StandardWatchEventKinds.OVERFLOW){
+                        for (Path path : WATCHED_FILES.keySet()) {
+                            if(path.getParent().equals(directory)){
+                                schedule(path, deadline);
+                            }
+                        }
+                    }else{
+                        Path path = directory.resolve((Path) event.context());
+                        if(WATCHED_FILES.containsKey(path)){
+                            schedule(path, deadline);
+                        }
+                    }
+                }
+                key.reset();
+            }
+
+            List<WatchedFile> due = pollDue();
+            if(!due.isEmpty()){
+                reloadExecutor.execute(() -> reload(due));
+            }
+        }
+    }
+
+    private static void schedule(Path path, long deadline) {
+        synchronized (PENDING){
+            PENDING.put(path, deadline);
+        }
+    }
+
+    private static long nextDeadline() {
+        synchronized (PENDING){
+            long next = Long.MAX_VALUE;
+            for (Long deadline : PENDING.values()) {
+                next = Math.min(next, deadline);
+            }
+            return next;
+        }
+    }
+
+    private static List<WatchedFile> pollDue() {
+        List<WatchedFile> due = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (PENDING){
+            Iterator<Map.Entry<Path, Long>> iterator = PENDING.entrySet().iterator();
+            while (iterator.hasNext()){
+                Map.Entry<Path, Long> entry = iterator.next();
+                if(entry.getValue() > now){
+                    continue;
+                }
+                iterator.remove();
+                WatchedFile watchedFile = WATCHED_FILES.get(entry.getKey());
+                if(watchedFile != null){
+                    due.add(watchedFile);
+                }
+            }
+        }
+        return due;
+    }
+
+    private static void reload(List<WatchedFile> due) {
+        Set<Path> changed = new LinkedHashSet<>();
+        for (WatchedFile watchedFile : due) {
+            Fingerprint previous = watchedFile.fingerprint;
+            Fingerprint fingerprint = Fingerprint.of(watchedFile.path, previous);
+            if(fingerprint == null){
+                continue;
+            }
+            watchedFile.fingerprint = fingerprint;
+            if(previous != null && fingerprint.hasSameContent(previous)){
+                continue;
+            }
+
+            for (Configuration configuration : watchedFile.configurations) {
+                try{
+                    configuration.reload();
+                }catch (Exception e){
+                    Configuration.LOGGER.error("Unable to reload '"+watchedFile.path.getFileName()+"': "+e.getMessage());
+                }
+            }
+            changed.add(watchedFile.path);
+        }
+        if(changed.isEmpty()){
+            return;
+        }
+
+        Set<Path> unmodifiable = Collections.unmodifiableSet(changed);
+        for (Listener listener : LISTENERS) {
+            listener.onChange(unmodifiable);
+        }
+    }
+
+    public interface Listener {
+
+        void onChange(Set<Path> changedFiles);
+
+    }
+
+    private static class WatchedFile {
+
+        private final Path path;
+        private final CopyOnWriteArrayList<Configuration> configurations = new CopyOnWriteArrayList<>();
+        private volatile Fingerprint fingerprint;
+
+        public WatchedFile(Path path) {
+            this.path = path;
+        }
+    }
+
+    private static class Fingerprint {
+
+        private final long lastModified;
+        private final long size;
+        private final long checksum;
+
+        private Fingerprint(long lastModified, long size, long checksum) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.checksum = checksum;
+        }
+
+        private static Fingerprint of(Path path, Fingerprint previous) {
+            try{
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                long lastModified = attributes.lastModifiedTime().toMillis();
+                if(previous != null && previous.lastModified == lastModified && previous.size == attributes.size()){
+                    return previous;
+                }
+
+                CRC32 crc = new CRC32();
+                byte[] buffer = new byte[8192];
+                try(InputStream inputStream = Files.newInputStream(path)){
+                    int read;
+                    while ((read = inputStream.read(buffer)) != -1){
+                        crc.update(buffer, 0, read);
+                    }
+                }
+                return new Fingerprint(lastModified, attributes.size(), crc.getValue());
+            }catch (IOException e){
+                return null;
+            }
+        }
+
+        private boolean hasSameContent(Fingerprint fingerprint) {
+            return this.size == fingerprint.size && this.checksum == fingerprint.checksum;
+        }
+    }
+}
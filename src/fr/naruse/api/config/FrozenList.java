@@ -0,0 +1,34 @@
+package fr.naruse.api.config;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+// Read-only list used for canonical subtrees, writes go through the Configuration which copies it first
+final class FrozenList extends AbstractList<Object> implements RandomAccess {
+
+    private final Object[] values;
+    private int hash;
+
+    FrozenList(Object[] values) {
+        this.values = values;
+    }
+
+    @Override
+    public Object get(int index) {
+        return this.values[index];
+    }
+
+    @Override
+    public int size() {
+        return this.values.length;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = this.hash;
+        if(hash == 0){
+            hash = this.hash = super.hashCode();
+        }
+        return hash;
+    }
+}
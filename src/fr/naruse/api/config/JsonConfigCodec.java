@@ -0,0 +1,36 @@
+package fr.naruse.api.config;
+
+import java.io.*;
+import java.util.Map;
+
+public class JsonConfigCodec implements ConfigCodec {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final boolean pretty;
+
+    public JsonConfigCodec() {
+        this(true);
+    }
+
+    public JsonConfigCodec(boolean pretty) {
+        this.pretty = pretty;
+    }
+
+    @Override
+    public Map<String, Object> read(InputStream inputStream, NumberMode numberMode) throws IOException {
+        return new ConfigurationTreeReader(numberMode).readRoot(Configuration.newReader(inputStream));
+    }
+
+    // Streamed token by token, the document is never held as a whole in memory
+    @Override
+    public void write(Map<String, Object> tree, OutputStream outputStream) throws IOException {
+        Writer writer = new Utf8Writer(outputStream, BUFFER_SIZE);
+        new ConfigurationTreeWriter(this.pretty).writeRoot(tree, writer);
+        writer.flush();
+    }
+
+    public boolean isPretty() {
+        return pretty;
+    }
+}
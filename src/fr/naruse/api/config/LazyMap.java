@@ -0,0 +1,151 @@
+package fr.naruse.api.config;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+// Top-level sections stay as byte ranges of the loaded document until they are read
+public class LazyMap extends AbstractMap<String, Object> {
+
+    private final Map<String, Object> entries;
+
+    LazyMap(Map<String, Object> entries) {
+        this.entries = entries;
+    }
+
+    @Override
+    public Object get(Object key) {
+        return value(this.entries.get(key));
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.entries.containsKey(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        return value(this.entries.put(key, value));
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return value(this.entries.remove(key));
+    }
+
+    @Override
+    public int size() {
+        return this.entries.size();
+    }
+
+    @Override
+    public void clear() {
+        this.entries.clear();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                Iterator<Entry<String, Object>> iterator = entries.entrySet().iterator();
+                return new Iterator<Entry<String, Object>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        Entry<String, Object> entry = iterator.next();
+                        return new Entry<String, Object>() {
+                            @Override
+                            public String getKey() {
+                                return entry.getKey();
+                            }
+
+                            @Override
+                            public Object getValue() {
+                                return value(entry.getValue());
+                            }
+
+                            @Override
+                            public Object setValue(Object value) {
+                                return value(entry.setValue(value));
+                            }
+
+                            @Override
+                            public boolean equals(Object o) {
+                                if(!(o instanceof Entry)){
+                                    return false;
+                                }
+                                Entry<?, ?> other = (Entry<?, ?>) o;
+                                Object value = this.getValue();
+                                return entry.getKey().equals(other.getKey()) && (value == null ? other.getValue() == null : value.equals(other.getValue()));
+                            }
+
+                            @Override
+                            public int hashCode() {
+                                Object value = this.getValue();
+                                return entry.getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+                            }
+                        };
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    // Unread sections are shared with the copy, each one is still parsed only once
+    public LazyMap copy() {
+        return new LazyMap(new CompactMap(this.entries));
+    }
+
+    private static Object value(Object o) {
+        return o instanceof Slice ? ((Slice) o).get() : o;
+    }
+
+    static class Slice {
+
+        private final int start;
+        private final int end;
+        private final NumberMode numberMode;
+        private ByteBuffer buffer;
+        private volatile boolean parsed;
+        private Object value;
+
+        Slice(ByteBuffer buffer, int start, int end, NumberMode numberMode) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+            this.numberMode = numberMode;
+        }
+
+        private Object get() {
+            if(!this.parsed){
+                synchronized (this){
+                    if(!this.parsed){
+                        this.value = new Utf8JsonReader(this.numberMode).readValue(this.buffer, this.start, this.end);
+                        // The document can be released once every section has been read
+                        this.buffer = null;
+                        this.parsed = true;
+                    }
+                }
+            }
+            return this.value;
+        }
+    }
+}
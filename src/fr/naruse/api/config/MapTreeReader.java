@@ -0,0 +1,297 @@
+package fr.naruse.api.config;
+
+import com.google.gson.internal.JsonReaderInternalAccess;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+public class MapTreeReader extends JsonReader {
+
+    private static final Reader UNREADABLE_READER = new Reader() {
+        @Override
+        public int read(char[] buffer, int offset, int count) {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void close() {
+            throw new AssertionError();
+        }
+    };
+    private static final Object NULL = new Object();
+    private static final Object SENTINEL_CLOSED = new Object();
+
+    static {
+        // Gson's map adapter promotes names through this hook, which only knows its own tree reader
+        JsonReaderInternalAccess access = JsonReaderInternalAccess.INSTANCE;
+        JsonReaderInternalAccess.INSTANCE = new JsonReaderInternalAccess() {
+            @Override
+            public void promoteNameToValue(JsonReader reader) throws IOException {
+                if(reader instanceof MapTreeReader){
+                    ((MapTreeReader) reader).promoteNameToValue();
+                }else{
+                    access.promoteNameToValue(reader);
+                }
+            }
+        };
+    }
+
+    private Object[] stack = new Object[32];
+    private int stackSize = 0;
+
+    private String[] pathNames = new String[32];
+    private int[] pathIndices = new int[32];
+
+    public MapTreeReader(Object tree) {
+        super(UNREADABLE_READER);
+        this.push(tree);
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        this.expect(JsonToken.BEGIN_ARRAY);
+        List<?> list = (List<?>) this.peekStack();
+        this.push(list.iterator());
+        this.pathIndices[this.stackSize - 1] = 0;
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        this.expect(JsonToken.END_ARRAY);
+        this.popStack();
+        this.popStack();
+        this.incrementIndex();
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        this.expect(JsonToken.BEGIN_OBJECT);
+        Map<?, ?> map = (Map<?, ?>) this.peekStack();
+        this.push(map.entrySet().iterator());
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        this.expect(JsonToken.END_OBJECT);
+        this.popStack();
+        this.popStack();
+        this.incrementIndex();
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        JsonToken token = this.peek();
+        return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY;
+    }
+
+    @Override
+    public JsonToken peek() throws IOException {
+        if(this.stackSize == 0){
+            return JsonToken.END_DOCUMENT;
+        }
+
+        Object o = this.peekStack();
+        if(o instanceof Iterator){
+            boolean isObject = this.stack[this.stackSize - 2] instanceof Map;
+            Iterator<?> iterator = (Iterator<?>) o;
+            if(iterator.hasNext()){
+                if(isObject){
+                    return JsonToken.NAME;
+                }
+                this.push(iterator.next());
+                return this.peek();
+            }
+            return isObject ? JsonToken.END_OBJECT : JsonToken.END_ARRAY;
+        }else if(o instanceof Map){
+            return JsonToken.BEGIN_OBJECT;
+        }else if(o instanceof List){
+            return JsonToken.BEGIN_ARRAY;
+        }else if(o instanceof String || o instanceof Character){
+            return JsonToken.STRING;
+        }else if(o instanceof Number){
+            return JsonToken.NUMBER;
+        }else if(o instanceof Boolean){
+            return JsonToken.BOOLEAN;
+        }else if(o == NULL){
+            return JsonToken.NULL;
+        }else if(o == SENTINEL_CLOSED){
+            throw new IllegalStateException("JsonReader is closed");
+        }
+
+        // An object stored as is with set(), bring it back to the tree form
+        this.stack[this.stackSize - 1] = Configuration.GSON.fromJson(Configuration.GSON.toJson(o), Object.class);
+        return this.peek();
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        this.expect(JsonToken.NAME);
+        Iterator<?> iterator = (Iterator<?>) this.peekStack();
+        Map.Entry<?, ?> entry = (Map.Entry<?, ?>) iterator.next();
+        String result = String.valueOf(entry.getKey());
+        this.pathNames[this.stackSize - 1] = result;
+        this.push(entry.getValue());
+        return result;
+    }
+
+    @Override
+    public String nextString() throws IOException {
+        JsonToken token = this.peek();
+        if(token != JsonToken.STRING && token != JsonToken.NUMBER){
+            throw new IllegalStateException("Expected "+JsonToken.STRING+" but was "+token+this.locationString());
+        }
+        String result = this.popStack().toString();
+        this.incrementIndex();
+        return result;
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        this.expect(JsonToken.BOOLEAN);
+        boolean result = (Boolean) this.popStack();
+        this.incrementIndex();
+        return result;
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        this.expect(JsonToken.NULL);
+        this.popStack();
+        this.incrementIndex();
+    }
+
+    @Override
+    public double nextDouble() throws IOException {
+        this.expectNumber();
+        Object o = this.peekStack();
+        double result = o instanceof Number ? ((Number) o).doubleValue() : Double.parseDouble(o.toString());
+        if(!this.isLenient() && (Double.isNaN(result) || Double.isInfinite(result))){
+            throw new NumberFormatException("JSON forbids NaN and infinities: "+result);
+        }
+        this.popStack();
+        this.incrementIndex();
+        return result;
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        this.expectNumber();
+        Object o = this.peekStack();
+        long result = o instanceof Number ? ((Number) o).longValue() : Long.parseLong(o.toString());
+        this.popStack();
+        this.incrementIndex();
+        return result;
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+        this.expectNumber();
+        Object o = this.peekStack();
+        int result = o instanceof Number ? ((Number) o).intValue() : Integer.parseInt(o.toString());
+        this.popStack();
+        this.incrementIndex();
+        return result;
+    }
+
+    @Override
+    public void close() {
+        this.stack = new Object[] { SENTINEL_CLOSED };
+        this.stackSize = 1;
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        if(this.peek() == JsonToken.NAME){
+            this.nextName();
+            this.pathNames[this.stackSize - 2] = "null";
+        }else{
+            this.popStack();
+            if(this.stackSize > 0){
+                this.pathNames[this.stackSize - 1] = "null";
+            }
+        }
+        this.incrementIndex();
+    }
+
+    @Override
+    public String getPath() {
+        StringBuilder result = new StringBuilder().append('$');
+        for (int i = 0; i < this.stackSize; i++) {
+            if(this.stack[i] instanceof List){
+                if(this.stack[++i] instanceof Iterator){
+                    result.append('[').append(this.pathIndices[i]).append(']');
+                }
+            }else if(this.stack[i] instanceof Map){
+                if(this.stack[++i] instanceof Iterator){
+                    result.append('.');
+                    if(this.pathNames[i] != null){
+                        result.append(this.pathNames[i]);
+                    }
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    public void promoteNameToValue() throws IOException {
+        this.expect(JsonToken.NAME);
+        Iterator<?> iterator = (Iterator<?>) this.peekStack();
+        Map.Entry<?, ?> entry = (Map.Entry<?, ?>) iterator.next();
+        this.push(entry.getValue());
+        this.push(String.valueOf(entry.getKey()));
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName();
+    }
+
+    private void expect(JsonToken expected) throws IOException {
+        if(this.peek() != expected){
+            throw new IllegalStateException("Expected "+expected+" but was "+this.peek()+this.locationString());
+        }
+    }
+
+    private void expectNumber() throws IOException {
+        JsonToken token = this.peek();
+        if(token != JsonToken.NUMBER && token != JsonToken.STRING){
+            throw new IllegalStateException("Expected "+JsonToken.NUMBER+" but was "+token+this.locationString());
+        }
+    }
+
+    private Object peekStack() {
+        return this.stack[this.stackSize - 1];
+    }
+
+    private Object popStack() {
+        Object result = this.stack[--this.stackSize];
+        this.stack[this.stackSize] = null;
+        return result;
+    }
+
+    private void push(Object newTop) {
+        if(this.stackSize == this.stack.length){
+            int newLength = this.stackSize * 2;
+            this.stack = Arrays.copyOf(this.stack, newLength);
+            this.pathIndices = Arrays.copyOf(this.pathIndices, newLength);
+            this.pathNames = Arrays.copyOf(this.pathNames, newLength);
+        }
+        this.stack[this.stackSize++] = newTop == null ? NULL : newTop;
+    }
+
+    private void incrementIndex() {
+        if(this.stackSize > 0){
+            this.pathIndices[this.stackSize - 1]++;
+        }
+    }
+
+    private String locationString() {
+        return " at path "+this.getPath();
+    }
+}
@@ -0,0 +1,186 @@
+package fr.naruse.api.config;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class MapTreeWriter extends JsonWriter {
+
+    private static final Writer UNWRITABLE_WRITER = new Writer() {
+        @Override
+        public void write(char[] buffer, int offset, int counter) {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void flush() {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void close() {
+            throw new AssertionError();
+        }
+    };
+    private static final Object SENTINEL_CLOSED = new Object();
+
+    private final NumberMode numberMode;
+    private final List<Object> stack = new ArrayList<>();
+    private String pendingName;
+    private Object product;
+
+    public MapTreeWriter(NumberMode numberMode) {
+        super(UNWRITABLE_WRITER);
+        this.numberMode = numberMode;
+    }
+
+    public Object get() {
+        if(!this.stack.isEmpty()){
+            throw new IllegalStateException("Expected one JSON element but was "+this.stack);
+        }
+        return this.product;
+    }
+
+    private Object peek() {
+        return this.stack.get(this.stack.size() - 1);
+    }
+
+    private void put(Object value) {
+        if(this.pendingName != null){
+            if(value != null || this.getSerializeNulls()){
+                ((Map<String, Object>) this.peek()).put(this.pendingName, value);
+            }
+            this.pendingName = null;
+        }else if(this.stack.isEmpty()){
+            this.product = value;
+        }else{
+            Object o = this.peek();
+            if(o instanceof List){
+                ((List<Object>) o).add(value);
+            }else{
+                throw new IllegalStateException();
+            }
+        }
+    }
+
+    @Override
+    public JsonWriter beginArray() {
+        List<Object> list = new ArrayList<>();
+        this.put(list);
+        this.stack.add(list);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray() {
+        return this.end(List.class);
+    }
+
+    @Override
+    public JsonWriter beginObject() {
+        Map<String, Object> map = new CompactMap();
+        this.put(map);
+        this.stack.add(map);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject() {
+        return this.end(Map.class);
+    }
+
+    private JsonWriter end(Class<?> type) {
+        if(this.stack.isEmpty() || this.pendingName != null || !type.isInstance(this.peek())){
+            throw new IllegalStateException();
+        }
+        this.stack.remove(this.stack.size() - 1);
+        return this;
+    }
+
+    @Override
+    public JsonWriter name(String name) {
+        if(name == null){
+            throw new NullPointerException("name == null");
+        }
+        if(this.stack.isEmpty() || this.pendingName != null || !(this.peek() instanceof Map)){
+            throw new IllegalStateException();
+        }
+        this.pendingName = name;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(String value) {
+        this.put(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter jsonValue(String value) {
+        throw new UnsupportedOperationException("Raw JSON values can't be written to a configuration tree");
+    }
+
+    @Override
+    public JsonWriter nullValue() {
+        this.put(null);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(boolean value) {
+        this.put(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Boolean value) {
+        this.put(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(double value) {
+        if(!this.isLenient() && (Double.isNaN(value) || Double.isInfinite(value))){
+            throw new IllegalArgumentException("JSON forbids NaN and infinities: "+value);
+        }
+        this.put(this.numberMode.normalize(value));
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(long value) {
+        this.put(this.numberMode.normalize(value));
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Number value) {
+        if(value == null){
+            return this.nullValue();
+        }
+        if(!this.isLenient()){
+            double d = value.doubleValue();
+            if(Double.isNaN(d) || Double.isInfinite(d)){
+                throw new IllegalArgumentException("JSON forbids NaN and infinities: "+value);
+            }
+        }
+        this.put(this.numberMode.normalize(value));
+        return this;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(!this.stack.isEmpty()){
+            throw new IOException("Incomplete document");
+        }
+        this.stack.add(SENTINEL_CLOSED);
+    }
+}
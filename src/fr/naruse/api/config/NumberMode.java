@@ -0,0 +1,40 @@
+package fr.naruse.api.config;
+
+import com.google.gson.internal.LazilyParsedNumber;
+
+import java.math.BigDecimal;
+
+public enum NumberMode {
+
+    // Every number is read as a Double, the historic behaviour
+    DOUBLE,
+    // Integral numbers are read as Long, the others as Double
+    LONG_OR_DOUBLE,
+    // Numbers are kept as their JSON text and parsed by the typed getters
+    LAZY;
+
+    public Number normalize(Number number) {
+        switch (this) {
+            case LONG_OR_DOUBLE:
+                if(number instanceof Long){
+                    return number;
+                }
+                if(number instanceof Integer || number instanceof Short || number instanceof Byte){
+                    return number.longValue();
+                }
+                if(number instanceof Double || number instanceof Float){
+                    double d = number.doubleValue();
+                    return d == Math.rint(d) && Math.abs(d) < 9.0E18 ? (Number) (long) d : (Number) d;
+                }
+                try{
+                    return new BigDecimal(number.toString()).longValueExact();
+                }catch (ArithmeticException | NumberFormatException e){
+                    return number.doubleValue();
+                }
+            case LAZY:
+                return number instanceof LazilyParsedNumber ? number : new LazilyParsedNumber(number.toString());
+            default:
+                return number instanceof Double ? number : number.doubleValue();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package fr.naruse.api.config;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+// Read-only views that also wrap the sections and lists read through them, unmodifiableMap only guards the top level
+final class ReadOnlyTree {
+
+    private ReadOnlyTree() {
+    }
+
+    static Object wrap(Object o) {
+        // Values are tested against classes first, alternating interface checks on the same class are slow on HotSpot
+        if(o == null || o instanceof Number || o instanceof String || o instanceof Boolean){
+            return o;
+        }
+        if(o instanceof ReadOnlyMap || o instanceof ReadOnlyList){
+            return o;
+        }
+        if(o instanceof Map){
+            return new ReadOnlyMap((Map<String, Object>) o);
+        }
+        if(o instanceof List){
+            return new ReadOnlyList((List<Object>) o);
+        }
+        return o;
+    }
+
+    private static final class ReadOnlyMap extends AbstractMap<String, Object> {
+
+        private final Map<String, Object> map;
+
+        private ReadOnlyMap(Map<String, Object> map) {
+            this.map = map;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return wrap(this.map.get(key));
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return this.map.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return this.map.size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    Iterator<Entry<String, Object>> iterator = map.entrySet().iterator();
+                    return new Iterator<Entry<String, Object>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            Entry<String, Object> entry = iterator.next();
+                            return new SimpleImmutableEntry<>(entry.getKey(), wrap(entry.getValue()));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return map.size();
+                }
+            };
+        }
+    }
+
+    private static final class ReadOnlyList extends AbstractList<Object> implements RandomAccess {
+
+        private final List<Object> list;
+
+        private ReadOnlyList(List<Object> list) {
+            this.list = list;
+        }
+
+        @Override
+        public Object get(int index) {
+            return wrap(this.list.get(index));
+        }
+
+        @Override
+        public int size() {
+            return this.list.size();
+        }
+    }
+}
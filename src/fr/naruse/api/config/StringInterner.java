@@ -0,0 +1,133 @@
+package fr.naruse.api.config;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded table shared by every parser so repeated keys and values end up as the same String instance.
+// Slots are simply overwritten on collision, so memory stays fixed and nothing is ever pinned for long.
+public final class StringInterner {
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+    private static volatile boolean enabled = true;
+    private static volatile int maxValueLength;
+    private static volatile String[] table = new String[4096];
+
+    private StringInterner() {
+    }
+
+    public static void enable() {
+        enabled = true;
+    }
+
+    public static void disable() {
+        enabled = false;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    // Values up to this length are interned too, 0 keeps values as they are
+    public static void setMaxValueLength(int maxValueLength) {
+        StringInterner.maxValueLength = maxValueLength;
+    }
+
+    public static int getMaxValueLength() {
+        return maxValueLength;
+    }
+
+    public static void setCapacity(int capacity) {
+        if(capacity < 1 || Integer.bitCount(capacity) != 1){
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        table = new String[capacity];
+    }
+
+    public static long getHits() {
+        return HITS.sum();
+    }
+
+    public static long getMisses() {
+        return MISSES.sum();
+    }
+
+    public static double getHitRate() {
+        long hits = HITS.sum();
+        long total = hits + MISSES.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public static void resetStatistics() {
+        HITS.reset();
+        MISSES.reset();
+    }
+
+    static String name(String s) {
+        return enabled ? intern(s) : s;
+    }
+
+    static String value(String s) {
+        return enabled && s.length() <= maxValueLength ? intern(s) : s;
+    }
+
+    static boolean internsValue(int length) {
+        return enabled && length <= maxValueLength;
+    }
+
+    private static String intern(String s) {
+        String[] table = StringInterner.table;
+        int index = spread(s.hashCode()) & (table.length - 1);
+        String cached = table[index];
+        if(cached != null && cached.equals(s)){
+            HITS.increment();
+            return cached;
+        }
+        table[index] = s;
+        MISSES.increment();
+        return s;
+    }
+
+    // ASCII bytes only, a hit doesn't allocate anything
+    static String intern(ByteBuffer buffer, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+
+        String[] table = StringInterner.table;
+        int index = spread(hash) & (table.length - 1);
+        String cached = table[index];
+        if(cached != null && matches(cached, buffer, start, end)){
+            HITS.increment();
+            return cached;
+        }
+
+        byte[] bytes = new byte[end - start];
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(start);
+        duplicate.get(bytes);
+        String s = new String(bytes, StandardCharsets.ISO_8859_1);
+        table[index] = s;
+        MISSES.increment();
+        return s;
+    }
+
+    private static boolean matches(String s, ByteBuffer buffer, int start, int end) {
+        if(s.length() != end - start){
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if(s.charAt(i - start) != buffer.get(i)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
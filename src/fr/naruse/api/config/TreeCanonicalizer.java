@@ -0,0 +1,56 @@
+package fr.naruse.api.config;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+// Equal subtrees, across every compacted configuration, are replaced by one frozen instance.
+// The table only holds weak references so canonical nodes go away with the last tree using them.
+public final class TreeCanonicalizer {
+
+    private static final Map<Object, WeakReference<Object>> TABLE = new WeakHashMap<>();
+
+    private TreeCanonicalizer() {
+    }
+
+    public static Object canonicalize(Object o) {
+        if(o instanceof Map){
+            Map<String, Object> map = (Map<String, Object>) o;
+            CompactMap copy = new CompactMap();
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                copy.put((String) intern(entry.getKey()), canonicalize(entry.getValue()));
+            }
+            copy.freeze();
+            return intern(copy);
+        }else if(o instanceof List){
+            List<Object> list = (List<Object>) o;
+            Object[] values = new Object[list.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = canonicalize(list.get(i));
+            }
+            return intern(new FrozenList(values));
+        }else if(o instanceof String || o instanceof Double || o instanceof Long){
+            return intern(o);
+        }
+        return o;
+    }
+
+    public static int size() {
+        synchronized (TABLE){
+            return TABLE.size();
+        }
+    }
+
+    private static Object intern(Object o) {
+        synchronized (TABLE){
+            WeakReference<Object> reference = TABLE.get(o);
+            Object canonical = reference == null ? null : reference.get();
+            if(canonical != null){
+                return canonical;
+            }
+            TABLE.put(o, new WeakReference<>(o));
+            return o;
+        }
+    }
+}
@@ -0,0 +1,587 @@
+package fr.naruse.api.config;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class Utf8JsonReader {
+
+    private static final Fallback FALLBACK = new Fallback();
+
+    private final NumberMode numberMode;
+    private ByteBuffer buffer;
+    private int pos;
+    private int limit;
+    private byte[] scratch = new byte[128];
+
+    public Utf8JsonReader(NumberMode numberMode) {
+        this.numberMode = numberMode;
+    }
+
+    public Map<String, Object> readRoot(byte[] bytes) throws IOException {
+        return this.readRoot(ByteBuffer.wrap(bytes));
+    }
+
+    public Map<String, Object> readRoot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate();
+        this.pos = buffer.position();
+        this.limit = buffer.limit();
+        try{
+            return this.readRoot();
+        }catch (Fallback e){
+            // Comments, unquoted strings and the other lenient forms are left to Gson, which also reports
+            // real syntax errors with their line and column
+            String json = StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+            return new ConfigurationTreeReader(this.numberMode).readRoot(new StringReader(json));
+        }finally {
+            this.buffer = null;
+        }
+    }
+
+    // Only the top-level keys are parsed, sections and lists are kept as byte ranges until they are read
+    public Map<String, Object> readLazyRoot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate();
+        this.pos = buffer.position();
+        this.limit = buffer.limit();
+        try{
+            if(!this.beginRoot()){
+                return null;
+            }
+            return this.indexObject(buffer);
+        }catch (Fallback e){
+            return this.readRoot(buffer);
+        }finally {
+            this.buffer = null;
+        }
+    }
+
+    Object readValue(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer.duplicate();
+        this.pos = start;
+        this.limit = end;
+        try{
+            Object o = this.read(this.skipWhitespace());
+            if(this.skipWhitespace() != -1){
+                throw FALLBACK;
+            }
+            return o;
+        }catch (Fallback e){
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(end).position(start);
+            JsonReader jsonReader = new JsonReader(new StringReader(StandardCharsets.UTF_8.decode(slice).toString()));
+            jsonReader.setLenient(true);
+            try{
+                return new ConfigurationTreeReader(this.numberMode).read(jsonReader);
+            }catch (IOException exception){
+                throw new JsonSyntaxException(exception);
+            }
+        }finally {
+            this.buffer = null;
+        }
+    }
+
+    private Map<String, Object> readRoot() {
+        if(!this.beginRoot()){
+            return null;
+        }
+
+        Map<String, Object> map = this.readObject();
+        if(this.skipWhitespace() != -1){
+            throw FALLBACK;
+        }
+        return map;
+    }
+
+    private boolean beginRoot() {
+        if(this.limit - this.pos >= 3 && this.buffer.get(this.pos) == (byte) 0xEF
+                && this.buffer.get(this.pos + 1) == (byte) 0xBB && this.buffer.get(this.pos + 2) == (byte) 0xBF){
+            this.pos += 3;
+        }
+
+        int c = this.skipWhitespace();
+        if(c == -1){
+            return false;
+        }
+        if(c == 'n'){
+            this.readLiteral("null");
+            if(this.skipWhitespace() != -1){
+                throw FALLBACK;
+            }
+            return false;
+        }
+        if(c != '{'){
+            throw FALLBACK;
+        }
+        return true;
+    }
+
+    private Map<String, Object> indexObject(ByteBuffer source) {
+        Map<String, Object> map = new CompactMap();
+        this.pos++;
+        int c = this.skipWhitespace();
+        while (c != '}') {
+            if(c != '"'){
+                throw FALLBACK;
+            }
+            String key = this.readString(true);
+            if(this.skipWhitespace() != ':'){
+                throw FALLBACK;
+            }
+            this.pos++;
+
+            c = this.skipWhitespace();
+            if(c == '{' || c == '['){
+                int start = this.pos;
+                this.skipContainer();
+                map.put(key, new LazyMap.Slice(source, start, this.pos, this.numberMode));
+            }else{
+                map.put(key, this.read(c));
+            }
+
+            c = this.skipWhitespace();
+            if(c == ','){
+                this.pos++;
+                c = this.skipWhitespace();
+                if(c == '}'){
+                    throw FALLBACK;
+                }
+            }else if(c != '}'){
+                throw FALLBACK;
+            }
+        }
+        this.pos++;
+        if(this.skipWhitespace() != -1){
+            throw FALLBACK;
+        }
+        return new LazyMap(map);
+    }
+
+    // Only strings and brackets are looked at, anything else inside is checked when the value is parsed
+    private void skipContainer() {
+        int depth = 0;
+        while (this.pos < this.limit) {
+            byte b = this.buffer.get(this.pos++);
+            switch (b) {
+                case '"':
+                    this.skipString();
+                    break;
+                case '{':
+                case '[':
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    if(--depth == 0){
+                        return;
+                    }
+                    break;
+                case '\'':
+                case '/':
+                case '#':
+                    throw FALLBACK;
+            }
+        }
+        throw FALLBACK;
+    }
+
+    private void skipString() {
+        while (this.pos < this.limit) {
+            byte b = this.buffer.get(this.pos++);
+            if(b == '"'){
+                return;
+            }
+            if(b == '\\'){
+                this.pos++;
+            }
+        }
+        throw FALLBACK;
+    }
+
+    private Object read(int c) {
+        switch (c) {
+            case '{':
+                return this.readObject();
+            case '[':
+                return this.readArray();
+            case '"':
+                return this.readString(false);
+            case 't':
+                this.readLiteral("true");
+                return Boolean.TRUE;
+            case 'f':
+                this.readLiteral("false");
+                return Boolean.FALSE;
+            case 'n':
+                this.readLiteral("null");
+                return null;
+            default:
+                if(c == '-' || (c >= '0' && c <= '9')){
+                    return this.readNumber();
+                }
+                throw FALLBACK;
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> map = new CompactMap();
+        this.pos++;
+        int c = this.skipWhitespace();
+        if(c == '}'){
+            this.pos++;
+            return map;
+        }
+        while (true) {
+            if(c != '"'){
+                throw FALLBACK;
+            }
+            String key = this.readString(true);
+            if(this.skipWhitespace() != ':'){
+                throw FALLBACK;
+            }
+            this.pos++;
+            map.put(key, this.read(this.skipWhitespace()));
+
+            c = this.skipWhitespace();
+            this.pos++;
+            if(c == '}'){
+                return map;
+            }
+            if(c != ','){
+                throw FALLBACK;
+            }
+            c = this.skipWhitespace();
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> list = new ArrayList<>();
+        this.pos++;
+        int c = this.skipWhitespace();
+        if(c == ']'){
+            this.pos++;
+            return list;
+        }
+        while (true) {
+            list.add(this.read(c));
+
+            c = this.skipWhitespace();
+            this.pos++;
+            if(c == ']'){
+                return list;
+            }
+            if(c != ','){
+                throw FALLBACK;
+            }
+            c = this.skipWhitespace();
+        }
+    }
+
+    private String readString(boolean name) {
+        int start = ++this.pos;
+        boolean ascii = true;
+        while (this.pos < this.limit) {
+            byte b = this.buffer.get(this.pos);
+            if(b == '"'){
+                int end = this.pos++;
+                if(ascii && (name ? StringInterner.isEnabled() : StringInterner.internsValue(end - start))){
+                    return StringInterner.intern(this.buffer, start, end);
+                }
+                String value = this.decode(start, end, ascii);
+                return name ? StringInterner.name(value) : StringInterner.value(value);
+            }
+            if(b == '\\'){
+                String value = this.readEscapedString(start);
+                return name ? StringInterner.name(value) : StringInterner.value(value);
+            }
+            if(b < 0){
+                ascii = false;
+            }
+            this.pos++;
+        }
+        throw FALLBACK;
+    }
+
+    // Raw bytes are copied as they are and escapes are appended as UTF-8, the whole string is then decoded once
+    private String readEscapedString(int start) {
+        int length = this.pos - start;
+        this.ensureScratch(length);
+        this.copy(start, length);
+
+        while (this.pos < this.limit) {
+            byte b = this.buffer.get(this.pos++);
+            if(b == '"'){
+                return new String(this.scratch, 0, length, StandardCharsets.UTF_8);
+            }
+            this.ensureScratch(length + 4);
+            if(b != '\\'){
+                this.scratch[length++] = b;
+                continue;
+            }
+            if(this.pos >= this.limit){
+                throw FALLBACK;
+            }
+
+            int codePoint;
+            byte escaped = this.buffer.get(this.pos++);
+            switch (escaped) {
+                case 'u':
+                    codePoint = this.readHex();
+                    if(Character.isHighSurrogate((char) codePoint)){
+                        if(this.pos + 1 >= this.limit || this.buffer.get(this.pos) != '\\' || this.buffer.get(this.pos + 1) != 'u'){
+                            throw FALLBACK;
+                        }
+                        this.pos += 2;
+                        int low = this.readHex();
+                        if(!Character.isLowSurrogate((char) low)){
+                            throw FALLBACK;
+                        }
+                        codePoint = Character.toCodePoint((char) codePoint, (char) low);
+                    }else if(Character.isLowSurrogate((char) codePoint)){
+                        throw FALLBACK;
+                    }
+                    break;
+                case 't':
+                    codePoint = '\t';
+                    break;
+                case 'b':
+                    codePoint = '\b';
+                    break;
+                case 'n':
+                    codePoint = '\n';
+                    break;
+                case 'r':
+                    codePoint = '\r';
+                    break;
+                case 'f':
+                    codePoint = '\f';
+                    break;
+                case '\n':
+                case '\'':
+                case '"':
+                case '\\':
+                case '/':
+                    codePoint = escaped;
+                    break;
+                default:
+                    throw FALLBACK;
+            }
+            length = this.appendUtf8(length, codePoint);
+        }
+        throw FALLBACK;
+    }
+
+    private int readHex() {
+        if(this.pos + 4 > this.limit){
+            throw FALLBACK;
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(this.buffer.get(this.pos++), 16);
+            if(digit == -1){
+                throw FALLBACK;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private int appendUtf8(int length, int codePoint) {
+        byte[] scratch = this.scratch;
+        if(codePoint < 0x80){
+            scratch[length++] = (byte) codePoint;
+        }else if(codePoint < 0x800){
+            scratch[length++] = (byte) (0xC0 | (codePoint >> 6));
+            scratch[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        }else if(codePoint < 0x10000){
+            scratch[length++] = (byte) (0xE0 | (codePoint >> 12));
+            scratch[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            scratch[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        }else{
+            scratch[length++] = (byte) (0xF0 | (codePoint >> 18));
+            scratch[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            scratch[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            scratch[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        return length;
+    }
+
+    private Object readNumber() {
+        int start = this.pos;
+        boolean negative = this.buffer.get(this.pos) == '-';
+        if(negative){
+            this.pos++;
+        }
+
+        int digitStart = this.pos;
+        long value = 0;
+        while (this.pos < this.limit) {
+            int c = this.buffer.get(this.pos);
+            if(c < '0' || c > '9'){
+                break;
+            }
+            value = value * 10 + (c - '0');
+            this.pos++;
+        }
+        int digits = this.pos - digitStart;
+        if(digits == 0 || (digits > 1 && this.buffer.get(digitStart) == '0')){
+            throw FALLBACK;
+        }
+
+        boolean integral = true;
+        if(this.pos < this.limit && this.buffer.get(this.pos) == '.'){
+            integral = false;
+            this.pos++;
+            this.skipDigits();
+        }
+        if(this.pos < this.limit && (this.buffer.get(this.pos) | 0x20) == 'e'){
+            integral = false;
+            this.pos++;
+            if(this.pos < this.limit && (this.buffer.get(this.pos) == '+' || this.buffer.get(this.pos) == '-')){
+                this.pos++;
+            }
+            this.skipDigits();
+        }
+        this.checkDelimiter();
+
+        // Up to 18 digits the accumulated value can't have overflowed
+        if(integral && digits <= 18 && this.numberMode != NumberMode.LAZY){
+            if(this.numberMode == NumberMode.LONG_OR_DOUBLE){
+                return negative ? -value : value;
+            }
+            return negative ? -(double) value : (double) value;
+        }
+
+        String number = this.decode(start, this.pos, true);
+        switch (this.numberMode) {
+            case LONG_OR_DOUBLE:
+                if(integral){
+                    try{
+                        return Long.parseLong(number);
+                    }catch (NumberFormatException ignored){
+                    }
+                }
+                // Same rule as JsonReader.nextLong, integral doubles that fit are longs
+                double d = Double.parseDouble(number);
+                long l = (long) d;
+                if(l == d){
+                    return l;
+                }
+                return d;
+            case LAZY:
+                return new LazilyParsedNumber(number);
+            default:
+                return Double.parseDouble(number);
+        }
+    }
+
+    private void skipDigits() {
+        int start = this.pos;
+        while (this.pos < this.limit) {
+            int c = this.buffer.get(this.pos);
+            if(c < '0' || c > '9'){
+                break;
+            }
+            this.pos++;
+        }
+        if(this.pos == start){
+            throw FALLBACK;
+        }
+    }
+
+    private void readLiteral(String literal) {
+        int length = literal.length();
+        if(this.pos + length > this.limit){
+            throw FALLBACK;
+        }
+        for (int i = 0; i < length; i++) {
+            if(this.buffer.get(this.pos + i) != literal.charAt(i)){
+                throw FALLBACK;
+            }
+        }
+        this.pos += length;
+        this.checkDelimiter();
+    }
+
+    // Anything glued to a literal or a number makes it an unquoted string for the lenient reader
+    private void checkDelimiter() {
+        if(this.pos >= this.limit){
+            return;
+        }
+        switch (this.buffer.get(this.pos)) {
+            case ' ':
+            case '\t':
+            case '\n':
+            case '\r':
+            case ',':
+            case ']':
+            case '}':
+                return;
+            default:
+                throw FALLBACK;
+        }
+    }
+
+    private int skipWhitespace() {
+        while (this.pos < this.limit) {
+            byte b = this.buffer.get(this.pos);
+            switch (b) {
+                case ' ':
+                case '\t':
+                case '\n':
+                case '\r':
+                    this.pos++;
+                    break;
+                case '/':
+                case '#':
+                    throw FALLBACK;
+                default:
+                    return b;
+            }
+        }
+        return -1;
+    }
+
+    private String decode(int start, int end, boolean ascii) {
+        int length = end - start;
+        byte[] bytes;
+        int offset;
+        if(this.buffer.hasArray()){
+            bytes = this.buffer.array();
+            offset = this.buffer.arrayOffset() + start;
+        }else{
+            this.ensureScratch(length);
+            this.copy(start, length);
+            bytes = this.scratch;
+            offset = 0;
+        }
+        return new String(bytes, offset, length, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+
+    private void copy(int start, int length) {
+        this.buffer.position(start);
+        this.buffer.get(this.scratch, 0, length);
+    }
+
+    private void ensureScratch(int length) {
+        if(this.scratch.length < length){
+            byte[] scratch = new byte[Math.max(length, this.scratch.length * 2)];
+            System.arraycopy(this.scratch, 0, scratch, 0, this.scratch.length);
+            this.scratch = scratch;
+        }
+    }
+
+    private static class Fallback extends RuntimeException {
+
+        private Fallback() {
+            super(null, null, false, false);
+        }
+    }
+}
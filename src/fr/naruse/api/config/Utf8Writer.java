@@ -0,0 +1,109 @@
+package fr.naruse.api.config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+// Encodes straight into one byte buffer, without the lock and intermediate char buffer of OutputStreamWriter.
+// Nothing is kept past the buffer, full buffers go to the stream as they are.
+final class Utf8Writer extends Writer {
+
+    private final OutputStream outputStream;
+    private final byte[] buffer;
+    private int position;
+    private char highSurrogate;
+
+    Utf8Writer(OutputStream outputStream, int bufferSize) {
+        this.outputStream = outputStream;
+        this.buffer = new byte[Math.max(bufferSize, 4)];
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        this.encode((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            this.encode(chars[i]);
+        }
+    }
+
+    @Override
+    public void write(String string, int offset, int length) throws IOException {
+        byte[] buffer = this.buffer;
+        for (int i = offset; i < offset + length; i++) {
+            char c = string.charAt(i);
+            if(c < 0x80 && this.highSurrogate == 0){
+                if(this.position == buffer.length){
+                    this.flushBuffer();
+                }
+                buffer[this.position++] = (byte) c;
+            }else{
+                this.encode(c);
+            }
+        }
+    }
+
+    private void encode(char c) throws IOException {
+        if(this.position + 4 > this.buffer.length){
+            this.flushBuffer();
+        }
+        byte[] buffer = this.buffer;
+        if(this.highSurrogate != 0){
+            char high = this.highSurrogate;
+            this.highSurrogate = 0;
+            if(Character.isLowSurrogate(c)){
+                int codePoint = Character.toCodePoint(high, c);
+                buffer[this.position++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[this.position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[this.position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[this.position++] = (byte) (0x80 | codePoint & 0x3F);
+                return;
+            }
+            // Unpaired surrogates are replaced like the JDK encoder does
+            buffer[this.position++] = '?';
+            this.encode(c);
+            return;
+        }
+
+        if(c < 0x80){
+            buffer[this.position++] = (byte) c;
+        }else if(c < 0x800){
+            buffer[this.position++] = (byte) (0xC0 | c >> 6);
+            buffer[this.position++] = (byte) (0x80 | c & 0x3F);
+        }else if(Character.isHighSurrogate(c)){
+            this.highSurrogate = c;
+        }else if(Character.isLowSurrogate(c)){
+            buffer[this.position++] = '?';
+        }else{
+            buffer[this.position++] = (byte) (0xE0 | c >> 12);
+            buffer[this.position++] = (byte) (0x80 | c >> 6 & 0x3F);
+            buffer[this.position++] = (byte) (0x80 | c & 0x3F);
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if(this.position > 0){
+            this.outputStream.write(this.buffer, 0, this.position);
+            this.position = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.flushBuffer();
+        this.outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(this.highSurrogate != 0){
+            this.highSurrogate = 0;
+            this.encode('?');
+        }
+        this.flush();
+        this.outputStream.close();
+    }
+}
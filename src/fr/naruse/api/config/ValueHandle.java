@@ -0,0 +1,70 @@
+package fr.naruse.api.config;
+
+import java.util.Arrays;
+
+abstract class ValueHandle {
+
+    private final Configuration configuration;
+    private final Object[] parents;
+    private final String key;
+    private final Object[] path;
+    private final Object[] dottedPath;
+    private Cached cached;
+
+    ValueHandle(Configuration configuration, Object[] parents, String key) {
+        this.configuration = configuration;
+        this.parents = parents;
+        this.key = key;
+        this.path = Arrays.copyOf(parents, parents.length + 1);
+        this.path[parents.length] = key;
+        if(ConfigurationPath.isDotted(key)){
+            String[] segments = ConfigurationPath.compile(key);
+            this.dottedPath = Arrays.copyOf(parents, parents.length + segments.length);
+            System.arraycopy(segments, 0, this.dottedPath, parents.length, segments.length);
+        }else{
+            this.dottedPath = null;
+        }
+    }
+
+    // The version and the value are published together so racing readers never pair them wrongly
+    final Cached cached() {
+        long version = this.configuration.getVersion();
+        Cached cached = this.cached;
+        if(cached == null || cached.version != version){
+            this.cached = cached = this.convert(version, this.resolve());
+        }
+        return cached;
+    }
+
+    // Same reading as get(path), a key holding the whole path wins over the sections it names
+    private Object resolve() {
+        Object o = this.configuration.resolve(this.path);
+        if(o == null && this.dottedPath != null){
+            o = this.configuration.resolve(this.dottedPath);
+        }
+        return o;
+    }
+
+    final void write(Object value) {
+        this.configuration.set(this.parents, this.key, value);
+    }
+
+    public boolean isPresent() {
+        return this.resolve() != null;
+    }
+
+    abstract Cached convert(long version, Object o);
+
+    static final class Cached {
+
+        final long version;
+        final Object object;
+        final long bits;
+
+        Cached(long version, Object object, long bits) {
+            this.version = version;
+            this.object = object;
+            this.bits = bits;
+        }
+    }
+}
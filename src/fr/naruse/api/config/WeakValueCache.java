@@ -0,0 +1,62 @@
+package fr.naruse.api.config;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Values are only weakly held, so section handles nobody keeps are dropped instead of piling up for every path ever read
+final class WeakValueCache<V> {
+
+    private final ConcurrentHashMap<String, Value<V>> map = new ConcurrentHashMap<>();
+    private final ReferenceQueue<V> queue = new ReferenceQueue<>();
+
+    V get(String key) {
+        this.expunge();
+        Value<V> value = this.map.get(key);
+        return value == null ? null : value.get();
+    }
+
+    V computeIfAbsent(String key, Function<String, V> factory) {
+        V v = this.get(key);
+        if(v != null){
+            return v;
+        }
+        V created = factory.apply(key);
+        Value<V> value;
+        while (true) {
+            value = this.map.putIfAbsent(key, new Value<>(key, created, this.queue));
+            if(value == null){
+                return created;
+            }
+            v = value.get();
+            if(v != null){
+                // Made by another thread meanwhile
+                return v;
+            }
+            this.map.remove(key, value);
+        }
+    }
+
+    int size() {
+        this.expunge();
+        return this.map.size();
+    }
+
+    private void expunge() {
+        Value<V> value;
+        while ((value = (Value<V>) this.queue.poll()) != null) {
+            this.map.remove(value.key, value);
+        }
+    }
+
+    private static final class Value<V> extends WeakReference<V> {
+
+        private final String key;
+
+        private Value(String key, V referent, ReferenceQueue<V> queue) {
+            super(referent, queue);
+            this.key = key;
+        }
+    }
+}